@@ -0,0 +1,57 @@
+package nemethi.jsonprettyprinter;
+
+import java.util.Arrays;
+
+/**
+ * This is an auxiliary class for {@link JsonPrettyPrinter}.
+ * It keeps track of the structures (arrays and objects) enclosing the current token.
+ * <p>
+ * Each level of nesting takes a single bit: set for objects, clear for arrays.
+ */
+final class ContainerStack {
+
+    private static final int BITS_PER_WORD = Long.SIZE;
+
+    private long[] words = new long[1];
+    private int depth;
+
+    void push(boolean object) {
+        int index = depth / BITS_PER_WORD;
+        if (index == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        long mask = 1L << (depth % BITS_PER_WORD);
+        if (object) {
+            words[index] |= mask;
+        } else {
+            words[index] &= ~mask;
+        }
+        depth++;
+    }
+
+    void pop() {
+        if (depth > 0) {
+            depth--;
+        }
+    }
+
+    boolean isInObject() {
+        if (depth == 0) {
+            return false;
+        }
+        int top = depth - 1;
+        return (words[top / BITS_PER_WORD] & (1L << (top % BITS_PER_WORD))) != 0;
+    }
+
+    boolean isInArray() {
+        return depth > 0 && !isInObject();
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    void clear() {
+        depth = 0;
+    }
+}
@@ -0,0 +1,90 @@
+package nemethi.jsonprettyprinter;
+
+/**
+ * This is an auxiliary class for {@link IncrementalJsonPrettyPrinter}.
+ * It holds an edited text in an array with a gap at the position of the last edit.
+ * <p>
+ * An edit moves the gap to its position first, which costs time linear in the distance from the previous edit,
+ * not in the length of the text. Consecutive edits close to each other, e.g. keystrokes, are cheap.
+ */
+final class GapBuffer {
+
+    private static final int MIN_GAP = 64;
+
+    private char[] chars = new char[MIN_GAP];
+    private int gapStart;
+    private int gapEnd = MIN_GAP;
+
+    /**
+     * Replaces the whole text.
+     */
+    void reset(String text) {
+        int length = text.length();
+        chars = new char[length + Math.max(MIN_GAP, length >> 3)];
+        text.getChars(0, length, chars, 0);
+        gapStart = length;
+        gapEnd = chars.length;
+    }
+
+    int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Replaces the range between {@code start} (inclusive) and {@code end} (exclusive) with the specified string.
+     */
+    void replace(int start, int end, String replacement) {
+        moveGap(start);
+        gapEnd += end - start;
+        int length = replacement.length();
+        ensureGap(length);
+        replacement.getChars(0, length, chars, gapStart);
+        gapStart += length;
+    }
+
+    String substring(int start, int end) {
+        if (end <= gapStart) {
+            return new String(chars, start, end - start);
+        }
+        int gapLength = gapEnd - gapStart;
+        if (start >= gapStart) {
+            return new String(chars, start + gapLength, end - start);
+        }
+        return new StringBuilder(end - start)
+                .append(chars, start, gapStart - start)
+                .append(chars, gapEnd, end - gapStart)
+                .toString();
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, length());
+    }
+
+    private void moveGap(int position) {
+        if (position < gapStart) {
+            int count = gapStart - position;
+            System.arraycopy(chars, position, chars, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (position > gapStart) {
+            int count = position - gapStart;
+            System.arraycopy(chars, gapEnd, chars, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    private void ensureGap(int length) {
+        if (gapEnd - gapStart >= length) {
+            return;
+        }
+        int required = length() + length;
+        char[] grown = new char[required + Math.max(MIN_GAP, required >> 1)];
+        int tailLength = chars.length - gapEnd;
+        System.arraycopy(chars, 0, grown, 0, gapStart);
+        System.arraycopy(chars, gapEnd, grown, grown.length - tailLength, tailLength);
+        gapEnd = grown.length - tailLength;
+        chars = grown;
+    }
+}
@@ -0,0 +1,314 @@
+package nemethi.jsonprettyprinter;
+
+import nemethi.jsonprettyprinter.StructureIndex.Member;
+import nemethi.jsonprettyprinter.StructureIndex.Structure;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Re-formats an edited JSON document incrementally, e.g. in an editor that pretty-prints on every keystroke.
+ * <p>
+ * An instance owns the document being edited: {@link #prettyPrint(String)} starts editing a document,
+ * and {@link #reformat(int, int, String)} applies a single edit of the input,
+ * and returns the corresponding edit of the output.
+ * <p>
+ * Between edits, an index of the arrays and objects of the input and the output is kept.
+ * An edit only re-prints the members enclosing it, i.e. the comma-delimited values or key-value pairs
+ * of the innermost array or object containing it, and only their part of the output is replaced.
+ * Locating them takes time logarithmic in the number of members of each enclosing structure,
+ * so the cost of an edit grows with the size of the edited members, not with the size of the document.
+ * Adding or removing a member also costs time linear in the number of members of its structure,
+ * though no characters are scanned or printed outside the member.
+ * The input and the output are kept in gap buffers, so applying an edit to them costs time linear
+ * in its distance from the previous edit, which is small while typing.
+ * <p>
+ * If the edited members are not well-formed, e.g. a quote or a bracket has been removed,
+ * the enclosing member of the outer structure is printed again, up to the whole document.
+ * The whole document is also printed again, and no index is kept, if it is not well-formed as a whole,
+ * or if the underlying pretty-printer highlights syntax, because the structure of highlighted output
+ * cannot be scanned.
+ * <p>
+ * The underlying pretty-printer must not be reconfigured while a document is edited.
+ * <p>
+ * Note: this class is not thread-safe.
+ * External synchronization is needed when an instance is used by multiple threads.
+ */
+public class IncrementalJsonPrettyPrinter {
+
+    private final JsonPrettyPrinter printer;
+    private final GapBuffer input = new GapBuffer();
+    private final GapBuffer output = new GapBuffer();
+    private Member document;
+
+    /**
+     * Creates a new instance that pretty-prints with the specified pretty-printer.
+     * The document being edited is empty until {@link #prettyPrint(String)} is called.
+     *
+     * @param printer the underlying pretty-printer
+     * @throws NullPointerException if {@code printer} is null
+     */
+    public IncrementalJsonPrettyPrinter(JsonPrettyPrinter printer) {
+        this.printer = requireNonNull(printer, "printer cannot be null");
+    }
+
+    /**
+     * Starts editing the specified JSON string, and pretty-prints it as a whole.
+     *
+     * @param json the valid JSON string to edit
+     * @return the pretty-printed form of {@code json}
+     * @throws NullPointerException     if {@code json} is null
+     * @throws IllegalArgumentException if {@code json} nests deeper than the maximum depth
+     */
+    public String prettyPrint(String json) {
+        requireNonNull(json, "json cannot be null");
+        String prettyPrinted = prettyPrintDocument(json);
+        start(json, prettyPrinted);
+        return prettyPrinted;
+    }
+
+    /**
+     * Replaces the range of the edited input between {@code start} (inclusive) and {@code end} (exclusive)
+     * with the specified string, and re-formats the output.
+     * If an exception is thrown, the edited document remains unchanged.
+     *
+     * @param start       the start of the edited range in the input, inclusive
+     * @param end         the end of the edited range in the input, exclusive
+     * @param replacement the string replacing the edited range, which results in a valid JSON string
+     * @return the edit to apply to the previous output to get the pretty-printed form of the edited input
+     * @throws NullPointerException      if {@code replacement} is null
+     * @throws IndexOutOfBoundsException if the edited range is out of the bounds of the input
+     * @throws IllegalArgumentException  if the edited JSON nests deeper than the maximum depth
+     */
+    public Edit reformat(int start, int end, String replacement) {
+        requireNonNull(replacement, "replacement cannot be null");
+        Objects.checkFromToIndex(start, end, input.length());
+
+        if (document != null) {
+            Edit edit = reformatMembers(start, end, replacement);
+            if (edit != null) {
+                return edit;
+            }
+        }
+        String json = input.substring(0, start) + replacement + input.substring(end, input.length());
+        String prettyPrinted = prettyPrintDocument(json);
+        Edit edit = new Edit(0, output.length(), prettyPrinted);
+        start(json, prettyPrinted);
+        return edit;
+    }
+
+    /**
+     * Returns the edited input. The string is created on every call.
+     *
+     * @return the input with all the edits applied
+     */
+    public String getInput() {
+        return input.toString();
+    }
+
+    /**
+     * Returns the pretty-printed form of the edited input. The string is created on every call.
+     *
+     * @return the output with all the edits applied
+     */
+    public String getOutput() {
+        return output.toString();
+    }
+
+    private void start(String json, String prettyPrinted) {
+        input.reset(json);
+        output.reset(prettyPrinted);
+        document = index(json, prettyPrinted);
+    }
+
+    private Member index(String json, String prettyPrinted) {
+        if (printer.getSyntaxHighlighting() != SyntaxHighlighting.NONE) {
+            return null;
+        }
+        List<Member> members = StructureIndex.parse(json, -1);
+        List<Member> outputMembers = StructureIndex.parse(prettyPrinted, -1);
+        if (members == null || outputMembers == null || members.size() != 1 || outputMembers.size() != 1
+                || !StructureIndex.copyOutput(members.get(0), outputMembers.get(0))) {
+            return null;
+        }
+        return members.get(0);
+    }
+
+    /**
+     * Descends the index to the innermost structure whose members enclose the edit,
+     * and re-prints those members, or the enclosing member of an outer structure if they are not well-formed.
+     *
+     * @return the edit of the output, or null if the edit is not enclosed by a structure
+     */
+    private Edit reformatMembers(int start, int end, String replacement) {
+        List<Location> path = new ArrayList<>();
+        Member member = document;
+        int memberInput = 0;
+        int memberOutput = 0;
+        while (member.structure != null) {
+            Structure structure = member.structure;
+            int structureInput = memberInput + member.inputOffset;
+            int structureOutput = memberOutput + member.outputOffset;
+            if (start <= structureInput || end >= structureInput + structure.inputLength()) {
+                break;
+            }
+            int first = structure.memberAt(start - structureInput);
+            int last = structure.memberAt(end - structureInput);
+            path.add(new Location(structure, structureInput, structureOutput, first, last));
+            if (first != last) {
+                break;
+            }
+            member = structure.member(first);
+            memberInput = structureInput + structure.inputOffset(first);
+            memberOutput = structureOutput + structure.outputOffset(first);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Edit edit = reformatMembers(path, i, start, end, replacement);
+            if (edit != null) {
+                return edit;
+            }
+        }
+        return null;
+    }
+
+    private Edit reformatMembers(List<Location> path, int index, int start, int end, String replacement) {
+        Location location = path.get(index);
+        Structure structure = location.structure;
+        Member lastMember = structure.member(location.last);
+        int inputStart = location.input + structure.inputOffset(location.first);
+        int inputEnd = location.input + structure.inputOffset(location.last) + lastMember.inputLength;
+        int outputStart = location.output + structure.outputOffset(location.first);
+        int outputEnd = location.output + structure.outputOffset(location.last) + lastMember.outputLength;
+
+        String json = input.substring(inputStart, start) + replacement + input.substring(end, inputEnd);
+        List<Member> members = StructureIndex.parse(json, structure.level);
+        boolean allMembers = location.first == 0 && location.last == structure.size() - 1;
+        if (members == null || members.get(0).blank && !allMembers) {
+            return null;
+        }
+        StringWriter writer = new StringWriter(json.length() * 2);
+        boolean lastInStructure = location.last == structure.size() - 1;
+        int memberStart = 0;
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            if (i > 0) {
+                writer.write(',');
+            }
+            int outputMemberStart = writer.getBuffer().length();
+            printer.prettyPrintMember(json.substring(memberStart, memberStart + member.inputLength), writer,
+                    structure.level + 1, structure.object, lastInStructure && i == members.size() - 1);
+            memberStart += member.inputLength + 1;
+            String outputMember = writer.getBuffer().substring(outputMemberStart);
+            List<Member> outputMembers = StructureIndex.parse(outputMember, structure.level);
+            if (outputMembers == null || outputMembers.size() != 1
+                    || !StructureIndex.copyOutput(member, outputMembers.get(0))) {
+                return null;
+            }
+        }
+        String prettyPrinted = writer.toString();
+
+        structure.replace(location.first, location.last, members);
+        int inputDelta = json.length() - (inputEnd - inputStart);
+        int outputDelta = prettyPrinted.length() - (outputEnd - outputStart);
+        for (int i = index - 1; i >= 0; i--) {
+            Location parent = path.get(i);
+            parent.structure.resize(parent.first, inputDelta, outputDelta);
+        }
+        document.inputLength += inputDelta;
+        document.outputLength += outputDelta;
+        input.replace(start, end, replacement);
+        output.replace(outputStart, outputEnd, prettyPrinted);
+        return new Edit(outputStart, outputEnd, prettyPrinted);
+    }
+
+    private String prettyPrintDocument(String json) {
+        StringWriter writer = new StringWriter(json.length() * 2);
+        printer.prettyPrint(json, writer);
+        return writer.toString();
+    }
+
+    /**
+     * The members of a structure enclosing an edit, between {@code first} and {@code last} (both inclusive),
+     * and the offsets of the structure in the input and the output.
+     */
+    private static final class Location {
+
+        private final Structure structure;
+        private final int input;
+        private final int output;
+        private final int first;
+        private final int last;
+
+        private Location(Structure structure, int input, int output, int first, int last) {
+            this.structure = structure;
+            this.input = input;
+            this.output = output;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    /**
+     * An edit of the pretty-printed output: the range between {@code start} (inclusive) and {@code end} (exclusive)
+     * is replaced with the replacement string.
+     */
+    public static final class Edit {
+
+        private final int start;
+        private final int end;
+        private final String replacement;
+
+        Edit(int start, int end, String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+
+        /**
+         * Returns the start of the replaced range, inclusive.
+         *
+         * @return the start of the replaced range
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the end of the replaced range, exclusive.
+         *
+         * @return the end of the replaced range
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the string replacing the range.
+         *
+         * @return the replacement string
+         */
+        public String getReplacement() {
+            return replacement;
+        }
+
+        /**
+         * Applies this edit to the specified string.
+         *
+         * @param output the previous output
+         * @return the edited output
+         * @throws NullPointerException if {@code output} is null
+         */
+        public String applyTo(String output) {
+            requireNonNull(output, "output cannot be null");
+            return new StringBuilder(output.length() - (end - start) + replacement.length())
+                    .append(output, 0, start)
+                    .append(replacement)
+                    .append(output, end, output.length())
+                    .toString();
+        }
+    }
+}
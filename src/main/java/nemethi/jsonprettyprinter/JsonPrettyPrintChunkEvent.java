@@ -0,0 +1,44 @@
+package nemethi.jsonprettyprinter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event committed for every chunk read by a {@link JsonPrettyPrinter}
+ * while pretty-printing JSON from a reader, spanning the reading, tokenizing and printing of the chunk.
+ * <p>
+ * The event is disabled by default, like {@link JsonPrettyPrintEvent}. The time not spent reading or writing
+ * is the time of tokenizing and printing.
+ */
+@Name(JsonPrettyPrintChunkEvent.NAME)
+@Label("JSON Pretty-Print Chunk")
+@Category("JSON Pretty-Printer")
+@Description("A chunk of JSON read and pretty-printed by a JsonPrettyPrinter")
+@Enabled(false)
+final class JsonPrettyPrintChunkEvent extends Event {
+
+    static final String NAME = "nemethi.jsonprettyprinter.PrettyPrintChunk";
+
+    @Label("Length")
+    @Description("The number of characters read")
+    int length;
+
+    @Label("Token Count")
+    @Description("The number of tokens printed")
+    int tokenCount;
+
+    @Label("Read Time")
+    @Description("The time spent waiting for the reader")
+    @Timespan
+    long readTime;
+
+    @Label("Write Time")
+    @Description("The time spent waiting for the target writer")
+    @Timespan
+    long writeTime;
+}
@@ -0,0 +1,53 @@
+package nemethi.jsonprettyprinter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event committed for every JSON pretty-printed by a {@link JsonPrettyPrinter},
+ * or for every stream of documents, spanning the whole operation.
+ * <p>
+ * The event is disabled by default, so it costs nothing unless it is enabled in the recording settings,
+ * e.g. with {@code <event name="nemethi.jsonprettyprinter.PrettyPrint"><setting name="enabled">true</setting></event>}
+ * in a {@code .jfc} file. The stack trace shows which pretty-printing method was invoked.
+ */
+@Name(JsonPrettyPrintEvent.NAME)
+@Label("JSON Pretty-Print")
+@Category("JSON Pretty-Printer")
+@Description("JSON pretty-printed by a JsonPrettyPrinter")
+@Enabled(false)
+final class JsonPrettyPrintEvent extends Event {
+
+    static final String NAME = "nemethi.jsonprettyprinter.PrettyPrint";
+
+    @Label("Input Length")
+    @Description("The number of characters of JSON read")
+    long inputLength;
+
+    @Label("Output Length")
+    @Description("The number of characters printed")
+    long outputLength;
+
+    @Label("Depth")
+    @Description("The deepest level of nesting")
+    int depth;
+
+    @Label("Token Count")
+    @Description("The number of tokens printed")
+    long tokenCount;
+
+    @Label("Read Time")
+    @Description("The time spent waiting for the reader")
+    @Timespan
+    long readTime;
+
+    @Label("Write Time")
+    @Description("The time spent waiting for the target writer")
+    @Timespan
+    long writeTime;
+}
@@ -1,9 +1,25 @@
 package nemethi.jsonprettyprinter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -11,15 +27,51 @@ import static java.util.Objects.requireNonNull;
  * First, the string is tokenized into a buffer.
  * Then, the tokens are printed with the specified amount of indentation.
  * <p>
+ * JSON read from a {@link Reader} or an {@link InputStream} is not tokenized into a buffer as a whole.
+ * Instead, it is read, tokenized and printed chunk by chunk, so memory usage is bounded
+ * regardless of the size of the document.
+ * A stream of concatenated documents, e.g. {@code {...}{...}[...]}, can be split into separately
+ * pretty-printed documents as they are read, see {@link #prettyPrintDocuments(Reader, Writer, String)}.
+ * Reactive applications can pretty-print a {@link Flow.Publisher} of input chunks as their output is requested,
+ * see {@link #prettyPrint(Flow.Publisher)}.
+ * <p>
+ * The depth of nesting is limited to protect against adversarial input,
+ * since the size of the indentation grows with every level.
+ * Pretty-printing fails fast when a JSON string nests deeper than the configured maximum depth:
+ * the depth is checked while the JSON is tokenized, before the rest of it is buffered.
+ * <p>
+ * The output can be syntax highlighted for terminals or web pages, see {@link SyntaxHighlighting}.
+ * Unicode escape sequences in strings can be decoded for readability,
+ * or non-ASCII characters can be escaped for ASCII-only sinks, see {@link UnicodeEscaping}.
+ * Numbers can be printed in a canonical form, see {@link NumberNormalization}.
+ * <p>
+ * Pretty-printing can be traced with JDK Flight Recorder: an event named {@code nemethi.jsonprettyprinter.PrettyPrint}
+ * is committed for every pretty-printed JSON, and one named {@code nemethi.jsonprettyprinter.PrettyPrintChunk}
+ * for every chunk read from a reader, carrying the input and output lengths, the depth, the number of tokens,
+ * and the time spent reading and writing. Both events are disabled by default,
+ * and cost nothing unless they are enabled in the recording settings.
+ * Until a recording is created, not even the classes of the events are loaded.
+ * <p>
  * This class does not perform any validation on the specified JSON strings.
  * Passing an invalid JSON to any of the pretty-printing methods may result in undefined behaviour.
  * <p>
+ * An instance can be reused for any number of JSON strings.
+ * It writes to the target directly, and keeps its tokenizer, buffers and encoder between JSON strings,
+ * so pretty-printing many small JSON strings with a single instance does not allocate per string,
+ * apart from the tokens and the output.
+ * <p>
  * Note: this class is not thread-safe.
  * External synchronization is needed when an instance is used by multiple threads.
  */
 public class JsonPrettyPrinter {
 
     private static final int DEFAULT_INDENT_AMOUNT = 2;
+    private static final int DEFAULT_MAX_DEPTH = 1000;
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_RETAINED_DOCUMENT_LENGTH = 65536;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final boolean FLIGHT_RECORDER_AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
     private static final String EMPTY_STRING = "";
     private static final String SPACE = " ";
     private static final String COMMA = ",";
@@ -28,32 +80,73 @@ public class JsonPrettyPrinter {
     private static final String ARRAY_END = "]";
     private static final String OBJECT_START = "{";
     private static final String OBJECT_END = "}";
+    private static final String STRUCTURAL_CHARACTERS = "{}[]:,";
 
     private final int indentAmount;
-    private PrintWriter printer;
+    private final int maxDepth;
+    private final ContainerStack containers = new ContainerStack();
+    private char[] indentation = new char[0];
+    private char[] chunk;
+    private SyntaxHighlighting syntaxHighlighting = SyntaxHighlighting.NONE;
+    private UnicodeEscaping unicodeEscaping = UnicodeEscaping.NONE;
+    private StringBuilder escapingBuffer = new StringBuilder();
+    private NumberNormalization numberNormalization = NumberNormalization.NONE;
+    private char[] numberBuffer = new char[64];
+    private ReusableOutputStreamWriter outputStreamWriter;
+    private Writer output;
+    private JsonTokenizer tokenizer;
+    private String previousToken;
+    private String documentSeparator;
+    private boolean separatorPending;
+    private StringWriter documentBuffer;
+    private Consumer<String> documentConsumer;
+    private Utf8BufferWriter bufferWriter;
+    private CharsetDecoder decoder;
+    private CharBuffer decodedChunk;
+    private ByteBuffer channelBuffer;
+    private boolean printingBuffers;
+    private boolean inputDecoded;
+    private PrettyPrintTracer tracer;
 
     /**
-     * Creates a new instance with the default amount of indentation, which is 2.
+     * Creates a new instance with the default amount of indentation, which is 2,
+     * and the default maximum depth, which is 1000.
      */
     public JsonPrettyPrinter() {
         this(DEFAULT_INDENT_AMOUNT);
     }
 
     /**
-     * Creates a new instance with the specified amount of indentation.
+     * Creates a new instance with the specified amount of indentation and the default maximum depth, which is 1000.
      *
      * @param indentAmount the amount of indentation for printing, i.e. the number of spaces per level of indentation
      * @throws IllegalArgumentException if {@code indentAmount} is not between 0 and 10 inclusive
      */
     public JsonPrettyPrinter(int indentAmount) {
-        validate(indentAmount);
+        this(indentAmount, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates a new instance with the specified amount of indentation and maximum depth.
+     *
+     * @param indentAmount the amount of indentation for printing, i.e. the number of spaces per level of indentation
+     * @param maxDepth     the maximum number of nested arrays and objects allowed in a JSON string
+     * @throws IllegalArgumentException if {@code indentAmount} is not between 0 and 10 inclusive
+     *                                  or {@code maxDepth} is not positive
+     */
+    public JsonPrettyPrinter(int indentAmount, int maxDepth) {
+        validate(indentAmount, maxDepth);
         this.indentAmount = indentAmount;
+        this.maxDepth = maxDepth;
     }
 
-    private void validate(int indentAmount) {
+    private void validate(int indentAmount, int maxDepth) {
         if (indentAmount < 0 || indentAmount > 10) {
             throw new IllegalArgumentException("indentAmount must be between 0 and 10 inclusive");
         }
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be positive");
+        }
     }
 
     /**
@@ -65,84 +158,792 @@ public class JsonPrettyPrinter {
         return indentAmount;
     }
 
+    /**
+     * Returns the maximum depth of nesting configured for this instance.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the syntax highlighting mode of this instance.
+     *
+     * @return the syntax highlighting mode
+     */
+    public SyntaxHighlighting getSyntaxHighlighting() {
+        return syntaxHighlighting;
+    }
+
+    /**
+     * Sets the syntax highlighting mode of this instance. The default mode is {@link SyntaxHighlighting#NONE}.
+     *
+     * @param syntaxHighlighting the syntax highlighting mode
+     * @throws NullPointerException if {@code syntaxHighlighting} is null
+     */
+    public void setSyntaxHighlighting(SyntaxHighlighting syntaxHighlighting) {
+        this.syntaxHighlighting = requireNonNull(syntaxHighlighting, "syntaxHighlighting cannot be null");
+    }
+
+    /**
+     * Returns the Unicode escaping mode of this instance.
+     *
+     * @return the Unicode escaping mode
+     */
+    public UnicodeEscaping getUnicodeEscaping() {
+        return unicodeEscaping;
+    }
+
+    /**
+     * Sets the Unicode escaping mode of this instance. The default mode is {@link UnicodeEscaping#NONE}.
+     *
+     * @param unicodeEscaping the Unicode escaping mode
+     * @throws NullPointerException if {@code unicodeEscaping} is null
+     */
+    public void setUnicodeEscaping(UnicodeEscaping unicodeEscaping) {
+        this.unicodeEscaping = requireNonNull(unicodeEscaping, "unicodeEscaping cannot be null");
+    }
+
+    /**
+     * Returns the number normalization mode of this instance.
+     *
+     * @return the number normalization mode
+     */
+    public NumberNormalization getNumberNormalization() {
+        return numberNormalization;
+    }
+
+    /**
+     * Sets the number normalization mode of this instance. The default mode is {@link NumberNormalization#NONE}.
+     *
+     * @param numberNormalization the number normalization mode
+     * @throws NullPointerException if {@code numberNormalization} is null
+     */
+    public void setNumberNormalization(NumberNormalization numberNormalization) {
+        this.numberNormalization = requireNonNull(numberNormalization, "numberNormalization cannot be null");
+    }
+
     /**
      * Pretty-prints the specified JSON string to the specified writer.
      * The writer remains open after this method returns.
      *
      * @param json   the valid JSON string to be pretty-printed
      * @param writer the target writer
-     * @throws NullPointerException if any of the parameters is null
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if {@code json} nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
      */
     public void prettyPrint(String json, Writer writer) {
+        requireNonNull(json, "json cannot be null");
         requireNonNull(writer, "writer cannot be null");
-        printer = new PrintWriter(writer, true);
+        startPrinting(writer);
         prettyPrint(json);
     }
 
     /**
      * Pretty-prints the specified JSON string to the specified output stream.
+     * The output is encoded with the default charset.
      * The output stream remains open after this method returns.
      *
      * @param json         the valid JSON string to be pretty-printed
      * @param outputStream the target output stream
-     * @throws NullPointerException if any of the parameters is null
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if {@code json} nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
      */
     public void prettyPrint(String json, OutputStream outputStream) {
+        requireNonNull(json, "json cannot be null");
         requireNonNull(outputStream, "outputStream cannot be null");
-        printer = new PrintWriter(outputStream, true);
+        if (outputStreamWriter == null) {
+            outputStreamWriter = new ReusableOutputStreamWriter();
+        }
+        startPrinting(outputStreamWriter.target(outputStream));
         prettyPrint(json);
     }
 
+    /**
+     * Pretty-prints the specified JSON string into a new string.
+     * <p>
+     * The JSON is tokenized once, and the exact length of the output is computed from the tokens before it is printed,
+     * so it is printed into a buffer of its exact size instead of growing a buffer by repeated copying.
+     * The buffer is copied once more into the resulting string.
+     *
+     * @param json the valid JSON string to be pretty-printed
+     * @return the pretty-printed JSON string
+     * @throws NullPointerException     if {@code json} is null
+     * @throws IllegalArgumentException if {@code json} nests deeper than the maximum depth,
+     *                                  or the output does not fit into a string
+     */
+    public String prettyPrintToString(String json) {
+        requireNonNull(json, "json cannot be null");
+        startTracing();
+        try {
+            countInput(json.length());
+            tokenizer().reset(json);
+            long length = isLayoutOnly()
+                    ? measureBufferedTokens(false)
+                    : printBufferedTokensTo(new Utf8ArrayWriter()).charCount();
+            StringWriter writer = new StringWriter(arrayLength(length));
+            printTo(writer);
+            prettyPrintBufferedTokens();
+            return writer.toString();
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Pretty-prints the specified JSON string into a new array of UTF-8 encoded bytes.
+     * <p>
+     * The JSON is tokenized once, and the exact encoded length of the output is computed from the tokens
+     * before it is printed, so the result is allocated once at its exact size,
+     * and the output is encoded directly into it.
+     *
+     * @param json the valid JSON string to be pretty-printed
+     * @return the pretty-printed JSON, UTF-8 encoded
+     * @throws NullPointerException     if {@code json} is null
+     * @throws IllegalArgumentException if {@code json} nests deeper than the maximum depth,
+     *                                  or the output does not fit into an array
+     */
+    public byte[] prettyPrintToBytes(String json) {
+        requireNonNull(json, "json cannot be null");
+        startTracing();
+        try {
+            countInput(json.length());
+            tokenizer().reset(json);
+            long length = isLayoutOnly()
+                    ? measureBufferedTokens(true)
+                    : printBufferedTokensTo(new Utf8ArrayWriter()).byteCount();
+            byte[] bytes = new byte[arrayLength(length)];
+            printTo(new Utf8ArrayWriter(bytes));
+            prettyPrintBufferedTokens();
+            close();
+            return bytes;
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Pretty-prints the JSON read from the specified reader to the specified writer.
+     * The JSON is read, tokenized and printed in chunks of bounded size.
+     * Neither the reader nor the writer is closed after this method returns.
+     *
+     * @param reader the reader to read the valid JSON to be pretty-printed from
+     * @param writer the target writer
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if the JSON nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
+     */
+    public void prettyPrint(Reader reader, Writer writer) {
+        requireNonNull(reader, "reader cannot be null");
+        requireNonNull(writer, "writer cannot be null");
+        startPrinting(writer);
+        prettyPrint(reader);
+    }
+
+    /**
+     * Pretty-prints the JSON read from the specified input stream to the specified output stream.
+     * The input is decoded, and the output is encoded with the specified codecs, e.g. to read and write gzip files.
+     * The decoded JSON must be UTF-8 encoded, and the output is UTF-8 encoded before it is passed to the output codec.
+     * <p>
+     * Decoding, tokenization, printing and encoding are done in a single pass with buffers of bounded size.
+     * Neither the input stream nor the output stream is closed after this method returns.
+     *
+     * @param inputStream  the input stream to read the valid, encoded JSON to be pretty-printed from
+     * @param inputCodec   the codec for decoding the input stream
+     * @param outputStream the target output stream
+     * @param outputCodec  the codec for encoding the output
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if the JSON nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
+     * @see StandardStreamCodec
+     */
+    public void prettyPrint(InputStream inputStream, StreamCodec inputCodec,
+                            OutputStream outputStream, StreamCodec outputCodec) {
+        requireNonNull(inputStream, "inputStream cannot be null");
+        requireNonNull(inputCodec, "inputCodec cannot be null");
+        requireNonNull(outputStream, "outputStream cannot be null");
+        requireNonNull(outputCodec, "outputCodec cannot be null");
+        try (InputStream decoded = inputCodec.decode(inputStream);
+             OutputStream encoded = outputCodec.encode(outputStream)) {
+            prettyPrint(new InputStreamReader(decoded, UTF_8), new OutputStreamWriter(encoded, UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pretty-prints the stream of concatenated JSON documents read from the specified reader to the specified writer.
+     * Every top-level array and object is pretty-printed as a separate document, and the documents are
+     * separated by the specified separator, e.g. a line break.
+     * Documents must be arrays or objects, and they may or may not be separated by whitespace in the stream.
+     * <p>
+     * The documents are read, tokenized and printed in chunks of bounded size, so unbounded streams can be processed.
+     * Neither the reader nor the writer is closed after this method returns.
+     *
+     * @param reader    the reader to read the valid JSON documents to be pretty-printed from
+     * @param writer    the target writer
+     * @param separator the string printed between documents
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if a document nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
+     */
+    public void prettyPrintDocuments(Reader reader, Writer writer, String separator) {
+        requireNonNull(reader, "reader cannot be null");
+        requireNonNull(writer, "writer cannot be null");
+        documentSeparator = requireNonNull(separator, "separator cannot be null");
+        startPrinting(writer);
+        prettyPrint(reader);
+    }
+
+    /**
+     * Pretty-prints the stream of concatenated JSON documents read from the specified reader,
+     * and passes each pretty-printed document to the specified consumer as soon as its end has been read.
+     * Every top-level array and object is a separate document.
+     * Documents must be arrays or objects, and they may or may not be separated by whitespace in the stream.
+     * <p>
+     * Only the current document is held in memory, so unbounded streams can be processed.
+     * The reader is not closed after this method returns.
+     *
+     * @param reader   the reader to read the valid JSON documents to be pretty-printed from
+     * @param consumer the consumer of the pretty-printed documents
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if a document nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
+     */
+    public void prettyPrintDocuments(Reader reader, Consumer<String> consumer) {
+        requireNonNull(reader, "reader cannot be null");
+        documentConsumer = requireNonNull(consumer, "consumer cannot be null");
+        documentSeparator = EMPTY_STRING;
+        if (documentBuffer == null) {
+            documentBuffer = new StringWriter();
+        }
+        startPrinting(documentBuffer);
+        prettyPrint(reader);
+    }
+
+    /**
+     * Pretty-prints the UTF-8 encoded JSON in the specified source buffer to the specified blocking channel.
+     * The source buffer is read from its position to its limit, and its position is advanced to its limit.
+     * The output is written through a direct buffer of bounded size, which is reused by this instance,
+     * so neither the input nor the output is copied to the heap as a whole.
+     * The channel remains open after this method returns.
+     *
+     * @param src     the buffer containing the valid, UTF-8 encoded JSON to be pretty-printed
+     * @param channel the target channel
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if the JSON nests deeper than the maximum depth
+     * @throws UncheckedIOException     if an I/O error occurs
+     */
+    public void prettyPrint(ByteBuffer src, WritableByteChannel channel) {
+        requireNonNull(src, "src cannot be null");
+        requireNonNull(channel, "channel cannot be null");
+        reset();
+        if (channelBuffer == null) {
+            channelBuffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+        channelBuffer.clear();
+        try {
+            CoderResult result;
+            do {
+                result = prettyPrint(src, channelBuffer);
+                channelBuffer.flip();
+                while (channelBuffer.hasRemaining()) {
+                    channel.write(channelBuffer);
+                }
+                channelBuffer.clear();
+            } while (result.isOverflow());
+        } catch (IOException e) {
+            reset();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pretty-prints the UTF-8 encoded JSON in the specified source buffer to the specified destination buffer
+     * as UTF-8 encoded bytes.
+     * <p>
+     * This method can be driven like a {@link java.nio.charset.CharsetEncoder}:
+     * if the destination buffer fills up, {@link CoderResult#OVERFLOW} is returned.
+     * The caller should then drain the destination buffer and invoke this method again with the same source buffer
+     * to continue.
+     * {@link CoderResult#UNDERFLOW} is returned once the whole output has been written.
+     * As with a {@code CharsetEncoder}, the destination buffer must have room for at least 4 bytes,
+     * i.e. the longest UTF-8 encoded character, otherwise no progress may be made.
+     * <p>
+     * The source buffer is read from its position to its limit, and it is decoded and tokenized
+     * in chunks of bounded size, only as the destination buffer has room for the output.
+     * Tokens are printed one at a time and encoded directly into the destination buffer,
+     * so between invocations only the decoded chunk and the rest of the token that did not fit are retained.
+     * Until {@link CoderResult#UNDERFLOW} is returned or {@link #reset()} is invoked,
+     * this instance must not be used in any other way.
+     *
+     * @param src the buffer containing the valid, UTF-8 encoded JSON to be pretty-printed
+     * @param dst the target buffer
+     * @return {@link CoderResult#UNDERFLOW} if the whole output has been written,
+     * or {@link CoderResult#OVERFLOW} if there is more output than space in the destination buffer
+     * @throws NullPointerException     if any of the parameters is null
+     * @throws IllegalArgumentException if the JSON nests deeper than the maximum depth
+     */
+    public CoderResult prettyPrint(ByteBuffer src, ByteBuffer dst) {
+        requireNonNull(src, "src cannot be null");
+        requireNonNull(dst, "dst cannot be null");
+        try {
+            if (!printingBuffers) {
+                startBuffers();
+            }
+            bufferWriter.target(dst);
+            while (bufferWriter.drain()) {
+                if (!prettyPrintNextToken() && !decodeChunk(src)) {
+                    endChunks();
+                    return CoderResult.UNDERFLOW;
+                }
+            }
+            return CoderResult.OVERFLOW;
+        } catch (RuntimeException e) {
+            reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a publisher of the pretty-printed form of the UTF-8 encoded JSON published by the specified publisher,
+     * e.g. to stream a response body without blocking.
+     * <p>
+     * Output is produced only as it is requested: tokens are printed only while the subscriber has outstanding demand,
+     * and input chunks are requested one at a time, only when the tokens of the previous chunks have been printed.
+     * The output is published in UTF-8 encoded buffers of up to 8192 characters,
+     * and no more than one buffer is held at a time, so a slow subscriber never causes unbounded buffering.
+     * <p>
+     * The returned publisher supports a single subscriber, and the input publisher is subscribed when it is subscribed.
+     * If the JSON nests deeper than the maximum depth, the subscriber receives an {@link IllegalArgumentException}
+     * and the input subscription is cancelled.
+     * This instance must not be used in any other way until the output is completed, failed or cancelled.
+     *
+     * @param input the publisher of the valid, UTF-8 encoded JSON to be pretty-printed, in chunks of any size
+     * @return the publisher of the pretty-printed, UTF-8 encoded JSON
+     * @throws NullPointerException if {@code input} is null
+     */
+    public Flow.Publisher<ByteBuffer> prettyPrint(Flow.Publisher<ByteBuffer> input) {
+        requireNonNull(input, "input cannot be null");
+        return new PrettyPrintingPublisher(this, input);
+    }
+
+    /**
+     * Resets this instance by abandoning the JSON being pretty-printed by {@link #prettyPrint(ByteBuffer, ByteBuffer)}
+     * after an overflow: the output retained, and the input decoded but not yet printed are discarded.
+     * The next invocation of that method starts pretty-printing a new JSON from the position of its source buffer.
+     */
+    public void reset() {
+        if (printingBuffers) {
+            finish();
+        }
+    }
+
+    /**
+     * Pretty-prints the specified member of an array or object, i.e. a value or a key-value pair,
+     * as if it followed a comma in a structure enclosed by {@code depth - 1} arrays.
+     * If it is the last member, the line break and indentation before the closing bracket are printed too.
+     * Used by {@link IncrementalJsonPrettyPrinter} to pretty-print a part of a document.
+     */
+    void prettyPrintMember(String json, Writer writer, int depth, boolean inObject, boolean last) {
+        startPrinting(writer);
+        try {
+            for (int i = 1; i < depth; i++) {
+                containers.push(false);
+            }
+            containers.push(inObject);
+            countInput(json.length());
+            tokenizer().reset(json);
+            tokenizer.endToken();
+            previousToken = COMMA;
+            prettyPrintBufferedTokens();
+            if (last && !previousToken.equals(COMMA)) {
+                println();
+                indent(depth - 1);
+            }
+            flush();
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Starts pretty-printing JSON passed in chunks to {@link #tokenizeChunk(char[], int, int)}
+     * to the specified writer. Used by {@link PrettyPrintingPublisher} to print as much as is requested.
+     */
+    void startChunks(Writer writer) {
+        startPrinting(writer);
+        tokenizer();
+    }
+
+    void tokenizeChunk(char[] chars, int offset, int length) {
+        tokenizer.tokenize(chars, offset, length);
+        countInput(length);
+    }
+
+    /**
+     * Pretty-prints the next complete token of the chunks tokenized so far.
+     *
+     * @return true if a token has been printed, false if there is no complete token
+     */
+    boolean prettyPrintNextToken() {
+        String token = tokenizer.poll();
+        if (token == null) {
+            return false;
+        }
+        prettyPrintBufferedToken(token);
+        if (tracer != null) {
+            tracer.countTokens(1);
+        }
+        return true;
+    }
+
+    void endChunks() {
+        try {
+            flush();
+        } finally {
+            finish();
+        }
+    }
+
+    private void startBuffers() {
+        if (bufferWriter == null) {
+            bufferWriter = new Utf8BufferWriter();
+            decoder = UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decodedChunk = CharBuffer.allocate(CHUNK_SIZE);
+        }
+        decoder.reset();
+        inputDecoded = false;
+        printingBuffers = true;
+        startChunks(bufferWriter);
+    }
+
+    /**
+     * Decodes and tokenizes the next chunk of the source buffer.
+     *
+     * @return true if a chunk has been decoded, false if the whole source buffer has been decoded
+     */
+    private boolean decodeChunk(ByteBuffer src) {
+        if (inputDecoded) {
+            return false;
+        }
+        if (decoder.decode(src, decodedChunk, true).isUnderflow()) {
+            decoder.flush(decodedChunk);
+            inputDecoded = true;
+        }
+        decodedChunk.flip();
+        tokenizeChunk(decodedChunk.array(), decodedChunk.arrayOffset(), decodedChunk.limit());
+        decodedChunk.clear();
+        return true;
+    }
+
     private void prettyPrint(String json) {
-        JsonTokenizer tokenizer = new JsonTokenizer(json);
+        try {
+            countInput(json.length());
+            tokenizer().reset(json);
+            prettyPrintBufferedTokens();
+            flush();
+        } finally {
+            finish();
+        }
+    }
+
+    private void prettyPrint(Reader reader) {
+        try {
+            JsonTokenizer tokenizer = tokenizer();
+            if (chunk == null) {
+                chunk = new char[CHUNK_SIZE];
+            }
+            boolean read;
+            do {
+                read = prettyPrintChunk(reader, tokenizer);
+            } while (read);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Reads, tokenizes and prints the next chunk.
+     *
+     * @return true if a chunk has been read, false if the end of the reader has been reached
+     */
+    private boolean prettyPrintChunk(Reader reader, JsonTokenizer tokenizer) throws IOException {
+        if (tracer != null) {
+            tracer.beginChunk();
+        }
+        int length = reader.read(chunk);
+        if (length == -1) {
+            return false;
+        }
+        if (tracer != null) {
+            tracer.endRead();
+        }
+        tokenizer.tokenize(chunk, 0, length);
+        int tokenCount = prettyPrintBufferedTokens();
+        countInput(length);
+        if (tracer != null) {
+            tracer.endChunk(length, tokenCount);
+        }
+        return true;
+    }
 
+    /**
+     * Begins tracing a new job, and starts printing to the specified writer.
+     */
+    private void startPrinting(Writer writer) {
+        startTracing();
+        printTo(writer);
+    }
+
+    /**
+     * Begins tracing a new job if one of the events is enabled.
+     * Flight Recorder is only referred to by {@link PrettyPrintTracer}, and only if the runtime contains it,
+     * so the pretty-printer also works on a runtime consisting of the java.base module only.
+     */
+    private void startTracing() {
+        tracer = FLIGHT_RECORDER_AVAILABLE ? PrettyPrintTracer.start() : null;
+    }
+
+    /**
+     * Prints to the specified writer. While the job is traced, the output is counted
+     * and the time spent writing it is measured.
+     */
+    private void printTo(Writer writer) {
+        output = tracer == null ? writer : tracer.wrap(writer);
+    }
+
+    private void countInput(int length) {
+        if (tracer != null) {
+            tracer.countInput(length);
+        }
+    }
+
+    private void commitEvent() {
+        if (tracer != null) {
+            tracer.commit();
+            tracer = null;
+        }
+    }
+
+    /**
+     * Returns true if tokens are printed as they are, so only the layout adds to their length.
+     */
+    private boolean isLayoutOnly() {
+        return syntaxHighlighting == SyntaxHighlighting.NONE
+                && unicodeEscaping == UnicodeEscaping.NONE
+                && numberNormalization == NumberNormalization.NONE;
+    }
+
+    /**
+     * Returns the length of the pretty-printed form of the buffered tokens, without removing them,
+     * by adding up the lengths of the tokens, line breaks, indentation and spaces,
+     * which must mirror {@link #prettyPrint(String, String)}.
+     * The depth is not checked, since the tokenizer has already rejected structures nested too deep.
+     *
+     * @param bytes whether to measure the UTF-8 encoded length instead of the number of characters
+     */
+    private long measureBufferedTokens(boolean bytes) {
+        int lineSeparatorLength = System.lineSeparator().length();
+        long length = 0;
         int level = 0;
-        String previousToken = EMPTY_STRING;
+        String previous = EMPTY_STRING;
+        for (String token : tokenizer) {
+            int lineBreakLevel = -1;
+            if (isStructureStart(token)) {
+                if (previous.equals(COMMA) || isStructureStart(previous)) {
+                    lineBreakLevel = level;
+                } else if (previous.equals(COLON)) {
+                    length++;
+                } else if (!previous.equals(EMPTY_STRING)) {
+                    length += (long) level * indentAmount;
+                }
+                level++;
+            } else if (isStructureEnd(token)) {
+                level--;
+                if (!isStructureStart(previous)) {
+                    lineBreakLevel = level;
+                }
+            } else if (previous.equals(COLON) && !token.equals(COMMA) && !token.equals(COLON)) {
+                length++;
+            } else if (!token.equals(COMMA) && !token.equals(COLON)) {
+                lineBreakLevel = level;
+            }
+            if (lineBreakLevel > -1) {
+                length += lineSeparatorLength + (long) lineBreakLevel * indentAmount;
+            }
+            length += bytes ? utf8Length(token) : token.length();
+            previous = token;
+        }
+        return length;
+    }
+
+    private static int utf8Length(String token) {
+        int length = token.length();
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= 0x800 && Character.isHighSurrogate(c) && i + 1 < token.length()
+                    && Character.isLowSurrogate(token.charAt(i + 1))) {
+                length += 2;
+                i++;
+            } else if (c >= 0x800 && !Character.isSurrogate(c)) {
+                length += 2;
+            } else if (c >= 0x80 && c < 0x800) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Prints the buffered tokens to the specified writer without removing them,
+     * and resets the state of printing for printing them again.
+     */
+    private Utf8ArrayWriter printBufferedTokensTo(Utf8ArrayWriter writer) {
+        output = writer;
         for (String token : tokenizer) {
-            level = prettyPrint(token, previousToken, level);
-            previousToken = token;
+            prettyPrintBufferedToken(token);
         }
-        printer.flush();
-        printer = null;
+        writer.close();
+        containers.clear();
+        previousToken = EMPTY_STRING;
+        return writer;
     }
 
-    private int prettyPrint(String token, String previousToken, int level) {
+    private int arrayLength(long length) {
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("the pretty-printed json is too large: " + length);
+        }
+        return (int) length;
+    }
+
+    private JsonTokenizer tokenizer() {
+        if (tokenizer == null) {
+            tokenizer = new JsonTokenizer(EMPTY_STRING);
+            tokenizer.setMaxDepth(maxDepth);
+        }
+        previousToken = EMPTY_STRING;
+        return tokenizer;
+    }
+
+    private int prettyPrintBufferedTokens() {
+        int tokenCount = 0;
+        String token;
+        while ((token = tokenizer.poll()) != null) {
+            prettyPrintBufferedToken(token);
+            tokenCount++;
+        }
+        if (tracer != null) {
+            tracer.countTokens(tokenCount);
+        }
+        return tokenCount;
+    }
+
+    private void prettyPrintBufferedToken(String token) {
+        if (separatorPending) {
+            print(documentSeparator);
+            separatorPending = false;
+        }
+        prettyPrint(token, previousToken);
+        previousToken = token;
+        if (documentSeparator != null && containers.depth() == 0 && isStructureEnd(token)) {
+            endDocument();
+        }
+    }
+
+    private void endDocument() {
+        previousToken = EMPTY_STRING;
+        if (documentConsumer != null) {
+            flush();
+            StringBuffer document = documentBuffer.getBuffer();
+            String prettyPrintedDocument = document.toString();
+            document.setLength(0);
+            documentConsumer.accept(prettyPrintedDocument);
+        } else {
+            separatorPending = true;
+        }
+    }
+
+    private void finish() {
+        commitEvent();
+        tokenizer.clear();
+        containers.clear();
+        output = null;
+        if (outputStreamWriter != null) {
+            outputStreamWriter.target(null);
+        }
+        if (bufferWriter != null) {
+            bufferWriter.clear();
+        }
+        printingBuffers = false;
+        documentSeparator = null;
+        separatorPending = false;
+        documentConsumer = null;
+        if (documentBuffer != null && documentBuffer.getBuffer().capacity() > MAX_RETAINED_DOCUMENT_LENGTH) {
+            documentBuffer = null;
+        } else if (documentBuffer != null) {
+            documentBuffer.getBuffer().setLength(0);
+        }
+        if (escapingBuffer.capacity() > MAX_RETAINED_DOCUMENT_LENGTH) {
+            escapingBuffer = new StringBuilder();
+        }
+        if (numberBuffer.length > MAX_RETAINED_DOCUMENT_LENGTH) {
+            numberBuffer = new char[64];
+        }
+    }
+
+    private void prettyPrint(String token, String previousToken) {
         if (isStructureStart(token)) {
-            level = prettyPrintStructureStart(token, previousToken, level);
+            prettyPrintStructureStart(token, previousToken);
         } else if (isStructureEnd(token)) {
-            level = prettyPrintStructureEnd(token, previousToken, level);
+            prettyPrintStructureEnd(token, previousToken);
         } else {
-            prettyPrintToken(level, previousToken, token);
+            prettyPrintToken(previousToken, token);
         }
-        return level;
     }
 
-    private int prettyPrintStructureStart(String token, String previousToken, int level) {
+    private void prettyPrintStructureStart(String token, String previousToken) {
+        int level = containers.depth();
+        if (level >= maxDepth) {
+            flush();
+            throw new IllegalArgumentException("json exceeds the maximum depth of " + maxDepth);
+        }
         if (previousToken.equals(COMMA)) {
             println();
         }
         if (isStructureStart(previousToken)) {
-            lnprint(token, level++);
+            lnprint(token, level);
         } else {
             if (previousToken.equals(COLON)) {
                 print(SPACE);
-                print(token);
-                level++;
+                printToken(token);
+            } else if (previousToken.equals(EMPTY_STRING)) {
+                printToken(token);
             } else {
-                print(token, level++);
+                print(token, level);
             }
         }
-        return level;
+        containers.push(token.equals(OBJECT_START));
+        if (tracer != null) {
+            tracer.updateDepth(containers.depth());
+        }
     }
 
-    private int prettyPrintStructureEnd(String token, String previousToken, int level) {
+    private void prettyPrintStructureEnd(String token, String previousToken) {
+        containers.pop();
         if (isStructureStart(previousToken)) {
-            print(token);
-            --level;
+            printToken(token);
         } else {
-            lnprint(token, --level);
+            lnprint(token, containers.depth());
         }
-        return level;
     }
 
     private boolean isStructureStart(String token) {
@@ -153,37 +954,127 @@ public class JsonPrettyPrinter {
         return token.equals(ARRAY_END) || token.equals(OBJECT_END);
     }
 
-    private void prettyPrintToken(int level, String prevToken, String token) {
+    private void prettyPrintToken(String prevToken, String token) {
         if (token.equals(COMMA) || token.equals(COLON)) {
-            print(token);
+            printToken(token);
         } else {
             if (prevToken.equals(COLON)) {
                 print(SPACE);
-                print(token);
+                printToken(token);
             } else {
-                lnprint(token, level);
+                lnprint(token, containers.depth());
             }
         }
     }
 
     private void println() {
-        printer.println();
+        print(LINE_SEPARATOR);
     }
 
     private void print(String string) {
-        printer.print(string);
+        try {
+            output.write(string);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(char[] chars, int length) {
+        try {
+            output.write(chars, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush() {
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void print(String token, int level) {
+        indent(level);
+        printToken(token);
+    }
+
+    private void lnprint(String token, int level) {
+        println();
+        print(token, level);
+    }
+
+    private void printToken(String token) {
+        char firstChar = token.charAt(0);
+        if (unicodeEscaping != UnicodeEscaping.NONE && firstChar == '"') {
+            token = unicodeEscaping.apply(token, escapingBuffer);
+        } else if (numberNormalization != NumberNormalization.NONE && isNumberStart(firstChar)) {
+            int length = normalizeNumber(token);
+            if (length > -1 && syntaxHighlighting == SyntaxHighlighting.NONE) {
+                write(numberBuffer, length);
+                return;
+            } else if (length > -1) {
+                token = new String(numberBuffer, 0, length);
+            }
+        }
+        if (syntaxHighlighting == SyntaxHighlighting.NONE) {
+            print(token);
+        } else {
+            printHighlighted(token);
+        }
+    }
+
+    private void printHighlighted(String token) {
+        try {
+            syntaxHighlighting.print(token, typeOf(token), output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TokenType typeOf(String token) {
+        char firstChar = token.charAt(0);
+        if (token.length() == 1 && STRUCTURAL_CHARACTERS.indexOf(firstChar) > -1) {
+            return TokenType.STRUCTURAL;
+        } else if (firstChar == '"') {
+            return isKey() ? TokenType.KEY : TokenType.STRING;
+        } else if (isNumberStart(firstChar)) {
+            return TokenType.NUMBER;
+        }
+        return TokenType.LITERAL;
     }
 
-    private void print(String string, int level) {
-        printer.print(indent(string, level));
+    private int normalizeNumber(String number) {
+        int maxLength = NumberNormalization.maxLength(number);
+        if (maxLength > numberBuffer.length) {
+            numberBuffer = new char[Math.max(maxLength, numberBuffer.length * 2)];
+        }
+        return numberNormalization.normalize(number, numberBuffer);
+    }
+
+    private boolean isNumberStart(char c) {
+        return c == '-' || (c >= '0' && c <= '9');
     }
 
-    private void lnprint(String string, int level) {
-        printer.println();
-        printer.print(indent(string, level));
+    private boolean isKey() {
+        return containers.isInObject() && (previousToken.equals(OBJECT_START) || previousToken.equals(COMMA));
     }
 
-    private String indent(String string, int level) {
-        return SPACE.repeat(level * indentAmount) + string;
+    private void indent(int level) {
+        int width = level * indentAmount;
+        if (width > indentation.length) {
+            indentation = new char[Math.max(width, indentation.length * 2)];
+            Arrays.fill(indentation, ' ');
+        }
+        write(indentation, width);
     }
 }
@@ -0,0 +1,259 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The command-line interface of {@link JsonPrettyPrinter}.
+ * <pre>
+ * Usage: jpp [--indent N] [--max-depth N] [--highlight none|ansi|html] [--unicode none|unescape|escape]
+ *            [--numbers none|canonical|plain] [--parallel] [FILE]...
+ * </pre>
+ * Pretty-prints each file to the standard output, followed by a line break.
+ * With no file, or when a file is {@code -}, the standard input is read.
+ * Files ending with {@code .gz} are decompressed on the fly.
+ * <p>
+ * The class avoids reflection and service loading, so it can be compiled ahead-of-time
+ * with GraalVM native-image or run from an AppCDS archive for fast startup.
+ */
+public final class JsonPrettyPrinterCli {
+
+    private static final String USAGE =
+            "Usage: jpp [--indent N] [--max-depth N] [--highlight none|ansi|html] [--unicode none|unescape|escape]"
+                    + " [--numbers none|canonical|plain] [--parallel] [FILE]...";
+    private static final String STDIN = "-";
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private final InputStream stdin;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+    private final List<String> files = new ArrayList<>();
+    private int indentAmount = 2;
+    private int maxDepth = 1000;
+    private SyntaxHighlighting syntaxHighlighting = SyntaxHighlighting.NONE;
+    private UnicodeEscaping unicodeEscaping = UnicodeEscaping.NONE;
+    private NumberNormalization numberNormalization = NumberNormalization.NONE;
+    private boolean parallel;
+    private boolean help;
+
+    JsonPrettyPrinterCli(InputStream stdin, PrintStream stdout, PrintStream stderr) {
+        this.stdin = stdin;
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    /**
+     * The entry point of the command-line interface.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int status = new JsonPrettyPrinterCli(System.in, System.out, System.err).run(args);
+        if (status != EXIT_SUCCESS) {
+            System.exit(status);
+        }
+    }
+
+    int run(String[] args) {
+        JsonPrettyPrinter printer;
+        try {
+            parse(args);
+            printer = newPrinter();
+        } catch (IllegalArgumentException e) {
+            stderr.println("jpp: " + e.getMessage());
+            stderr.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (help) {
+            stdout.println(USAGE);
+            return EXIT_SUCCESS;
+        }
+        if (files.isEmpty()) {
+            files.add(STDIN);
+        }
+        int status = parallel ? printInParallel() : printSequentially(printer);
+        stdout.flush();
+        return status;
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--indent")) {
+                indentAmount = parseInt(arg, args, ++i);
+            } else if (arg.equals("--max-depth")) {
+                maxDepth = parseInt(arg, args, ++i);
+            } else if (arg.equals("--highlight")) {
+                syntaxHighlighting = parseSyntaxHighlighting(arg, args, ++i);
+            } else if (arg.equals("--unicode")) {
+                unicodeEscaping = parseUnicodeEscaping(arg, args, ++i);
+            } else if (arg.equals("--numbers")) {
+                numberNormalization = parseNumberNormalization(arg, args, ++i);
+            } else if (arg.equals("--parallel")) {
+                parallel = true;
+            } else if (arg.equals("--help")) {
+                help = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("unknown option: " + arg);
+            } else {
+                files.add(arg);
+            }
+        }
+    }
+
+    private int parseInt(String option, String[] args, int index) {
+        String value = value(option, args, index);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " requires a number: " + value);
+        }
+    }
+
+    private SyntaxHighlighting parseSyntaxHighlighting(String option, String[] args, int index) {
+        String value = value(option, args, index);
+        for (SyntaxHighlighting mode : SyntaxHighlighting.values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException(option + " requires one of none, ansi or html: " + value);
+    }
+
+    private UnicodeEscaping parseUnicodeEscaping(String option, String[] args, int index) {
+        String value = value(option, args, index);
+        for (UnicodeEscaping mode : UnicodeEscaping.values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException(option + " requires one of none, unescape or escape: " + value);
+    }
+
+    private NumberNormalization parseNumberNormalization(String option, String[] args, int index) {
+        String value = value(option, args, index);
+        for (NumberNormalization mode : NumberNormalization.values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException(option + " requires one of none, canonical or plain: " + value);
+    }
+
+    private String value(String option, String[] args, int index) {
+        if (index == args.length) {
+            throw new IllegalArgumentException(option + " requires a value");
+        }
+        return args[index];
+    }
+
+    private JsonPrettyPrinter newPrinter() {
+        JsonPrettyPrinter printer = new JsonPrettyPrinter(indentAmount, maxDepth);
+        printer.setSyntaxHighlighting(syntaxHighlighting);
+        printer.setUnicodeEscaping(unicodeEscaping);
+        printer.setNumberNormalization(numberNormalization);
+        return printer;
+    }
+
+    private int printSequentially(JsonPrettyPrinter printer) {
+        int status = EXIT_SUCCESS;
+        for (String file : files) {
+            try {
+                print(printer, file, stdout);
+                stdout.println();
+            } catch (IOException | RuntimeException e) {
+                status = reportError(file, e);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Pretty-prints the files on as many threads as there are processors, and writes the outputs in order.
+     * At most one file per thread is printed or waiting to be written at a time, so the memory used
+     * for buffering the outputs does not grow with the number of files.
+     */
+    private int printInParallel() {
+        int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Queue<Future<byte[]>> results = new ArrayDeque<>(threads);
+            int submitted = 0;
+            int status = EXIT_SUCCESS;
+            for (int i = 0; i < files.size(); i++) {
+                while (submitted < files.size() && submitted < i + threads) {
+                    results.add(executor.submit(new PrintTask(files.get(submitted++))));
+                }
+                try {
+                    stdout.write(results.remove().get());
+                    stdout.println();
+                } catch (ExecutionException e) {
+                    status = reportError(files.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return reportError(files.get(i), e);
+                } catch (IOException e) {
+                    status = reportError(files.get(i), e);
+                }
+            }
+            return status;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void print(JsonPrettyPrinter printer, String file, OutputStream output) throws IOException {
+        if (file.equals(STDIN)) {
+            printer.prettyPrint(stdin, StandardStreamCodec.IDENTITY, output, StandardStreamCodec.IDENTITY);
+            return;
+        }
+        StreamCodec codec = file.endsWith(GZIP_EXTENSION) ? StandardStreamCodec.GZIP : StandardStreamCodec.IDENTITY;
+        try (InputStream input = Files.newInputStream(Path.of(file))) {
+            printer.prettyPrint(input, codec, output, StandardStreamCodec.IDENTITY);
+        }
+    }
+
+    private int reportError(String file, Throwable e) {
+        if (e instanceof UncheckedIOException) {
+            e = e.getCause();
+        }
+        String message = e instanceof NoSuchFileException ? "no such file" : e.getMessage();
+        stderr.println("jpp: " + file + ": " + message);
+        return EXIT_FAILURE;
+    }
+
+    private final class PrintTask implements Callable<byte[]> {
+
+        private final String file;
+
+        private PrintTask(String file) {
+            this.file = file;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            print(newPrinter(), file, output);
+            return output.toByteArray();
+        }
+    }
+}
@@ -13,18 +13,30 @@ import static java.util.Objects.requireNonNull;
  * <p>
  * The tokens are stored in an internal buffer from where they can be read
  * by calling the {@link JsonTokenizer#iterator()} method or using an enhanced {@code for} statement.
+ * <p>
+ * An instance can be reused for tokenizing another JSON string by calling {@link JsonTokenizer#reset(String)}.
+ * The internal buffers are kept between documents, unless they grew larger than a fixed cap
+ * while tokenizing an oversized document.
+ * <p>
+ * The depth of nesting can be limited, so a deeply nested JSON string is rejected as soon as
+ * its first structure beyond the limit is read, instead of after it has been buffered as a whole.
  */
 public class JsonTokenizer implements Iterable<String> {
 
     private static final String STRUCTURAL_CHARACTERS = "{}[]:,";
     private static final char QUOTE = '\"';
     private static final char ESCAPE_CHARACTER = '\\';
+    private static final int MAX_RETAINED_TOKEN_COUNT = 4096;
+    private static final int MAX_RETAINED_TOKEN_LENGTH = 8192;
 
-    private final Deque<String> tokens = new ArrayDeque<>();
-    private final StringBuilder currentToken = new StringBuilder();
+    private Deque<String> tokens = new ArrayDeque<>();
+    private StringBuilder currentToken = new StringBuilder();
 
     private boolean betweenQuotes;
     private boolean escapedChar;
+    private int peakTokenCount;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int depth;
 
     /**
      * Creates a new instance by tokenizing the specified JSON string.
@@ -38,26 +50,102 @@ public class JsonTokenizer implements Iterable<String> {
         tokenize(json);
     }
 
+    /**
+     * Discards the tokens of the previous JSON string and tokenizes the specified one.
+     * The string is not validated: passing an invalid JSON string may result in undefined behaviour.
+     *
+     * @param json the valid JSON string to be broke into tokens
+     * @throws NullPointerException if {@code json} is null
+     */
+    public void reset(String json) {
+        requireNonNull(json, "json cannot be null");
+        clear();
+        tokenize(json);
+    }
+
+    /**
+     * Limits the depth of nesting of the JSON strings tokenized by this instance.
+     * Tokenizing fails with an {@link IllegalArgumentException} when a structure nests deeper than the limit.
+     */
+    void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    void clear() {
+        if (peakTokenCount > MAX_RETAINED_TOKEN_COUNT) {
+            tokens = new ArrayDeque<>();
+        } else {
+            tokens.clear();
+        }
+        peakTokenCount = 0;
+        if (currentToken.capacity() > MAX_RETAINED_TOKEN_LENGTH) {
+            currentToken = new StringBuilder();
+        } else {
+            currentToken.setLength(0);
+        }
+        betweenQuotes = false;
+        escapedChar = false;
+        depth = 0;
+    }
+
     private void tokenize(String json) {
-        for (char currentChar : json.toCharArray()) {
-            if (escapedChar) {
-                escapedChar = false;
-                currentToken.append(currentChar);
-                continue;
-            }
+        for (int i = 0; i < json.length(); i++) {
+            tokenize(json.charAt(i));
+        }
+        updatePeakTokenCount();
+    }
 
-            if (isStructuralCharacter(currentChar)) {
-                handleStructuralCharacter(currentChar);
-            } else if (currentChar == QUOTE) {
-                betweenQuotes = !betweenQuotes;
-                currentToken.append(currentChar);
-            } else if (currentChar == ESCAPE_CHARACTER) {
-                escapedChar = true;
-                currentToken.append(currentChar);
-            } else {
-                handleOtherCharacters(currentChar);
-            }
+    /**
+     * Continues tokenizing with the specified chunk of a JSON document.
+     * Tokens may span chunks: a token is only buffered once its end has been seen.
+     */
+    void tokenize(char[] chunk, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            tokenize(chunk[i]);
         }
+        updatePeakTokenCount();
+    }
+
+    /**
+     * Buffers the token read so far, as if a structural character followed it.
+     * Used to tokenize a single member of a structure, whose value is not followed by one.
+     */
+    void endToken() {
+        if (currentTokenIsNotEmpty()) {
+            tokens.add(currentToken.toString());
+            currentToken.setLength(0);
+        }
+    }
+
+    /**
+     * Removes and returns the first token in the internal buffer, or returns null if the buffer is empty.
+     */
+    String poll() {
+        return tokens.poll();
+    }
+
+    private void tokenize(char currentChar) {
+        if (escapedChar) {
+            escapedChar = false;
+            currentToken.append(currentChar);
+            return;
+        }
+
+        if (isStructuralCharacter(currentChar)) {
+            handleStructuralCharacter(currentChar);
+        } else if (currentChar == QUOTE) {
+            betweenQuotes = !betweenQuotes;
+            currentToken.append(currentChar);
+        } else if (currentChar == ESCAPE_CHARACTER) {
+            escapedChar = true;
+            currentToken.append(currentChar);
+        } else {
+            handleOtherCharacters(currentChar);
+        }
+    }
+
+    private void updatePeakTokenCount() {
+        peakTokenCount = Math.max(peakTokenCount, tokens.size());
     }
 
     private boolean isStructuralCharacter(char c) {
@@ -72,7 +160,36 @@ public class JsonTokenizer implements Iterable<String> {
                 tokens.add(currentToken.toString());
                 currentToken.setLength(0);
             }
-            tokens.add(String.valueOf(currentChar));
+            trackDepth(currentChar);
+            tokens.add(structuralToken(currentChar));
+        }
+    }
+
+    private void trackDepth(char structuralChar) {
+        if (structuralChar == '[' || structuralChar == '{') {
+            if (depth == maxDepth) {
+                throw new IllegalArgumentException("json exceeds the maximum depth of " + maxDepth);
+            }
+            depth++;
+        } else if ((structuralChar == ']' || structuralChar == '}') && depth > 0) {
+            depth--;
+        }
+    }
+
+    private String structuralToken(char structuralChar) {
+        switch (structuralChar) {
+            case '{':
+                return "{";
+            case '}':
+                return "}";
+            case '[':
+                return "[";
+            case ']':
+                return "]";
+            case ':':
+                return ":";
+            default:
+                return ",";
         }
     }
 
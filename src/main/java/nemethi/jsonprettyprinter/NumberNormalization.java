@@ -0,0 +1,219 @@
+package nemethi.jsonprettyprinter;
+
+/**
+ * The number normalization modes of {@link JsonPrettyPrinter}.
+ * <p>
+ * Numbers are normalized by scanning their characters, without parsing them into {@code double}s
+ * or {@link java.math.BigDecimal}s, so no precision is lost and no objects are allocated per number.
+ * Integers, e.g. {@code 12345678901234567890}, are always printed unchanged.
+ */
+public enum NumberNormalization {
+
+    /**
+     * Numbers are printed as they are.
+     */
+    NONE,
+
+    /**
+     * Redundant forms are removed: trailing zeros of fractions, plus signs and leading zeros of exponents,
+     * zero exponents, and exponents of zero, e.g. {@code 1.50E+02} is printed as {@code 1.5E2},
+     * {@code 2.0e0} as {@code 2} and {@code 0.0e5} as {@code 0}. The case of the exponent is kept.
+     */
+    CANONICAL,
+
+    /**
+     * Like {@link #CANONICAL}, but exponents are also expanded into plain notation
+     * if it takes at most 20 additional zeros, e.g. {@code 1.0E2} is printed as {@code 100}
+     * and {@code 15e-4} as {@code 0.0015}. Numbers needing more zeros are printed in canonical form.
+     */
+    PLAIN;
+
+    private static final int MAX_PLAIN_ZEROS = 20;
+    private static final int MAX_EXPONENT_DIGITS = 9;
+
+    /**
+     * Returns the maximum length of the normalized form of the specified number,
+     * i.e. the minimum length of the buffer passed to {@link #normalize(String, char[])}.
+     */
+    static int maxLength(String number) {
+        return number.length() + MAX_PLAIN_ZEROS + 2;
+    }
+
+    /**
+     * Writes the normalized form of the specified number to the start of the buffer.
+     *
+     * @param number the number token
+     * @param buffer the buffer, at least as long as {@link #maxLength(String)}
+     * @return the length of the normalized form, or -1 if the number is printed as it is
+     */
+    int normalize(String number, char[] buffer) {
+        if (this == NONE) {
+            return -1;
+        }
+        int length = number.length();
+        int integerStart = number.charAt(0) == '-' ? 1 : 0;
+        int integerEnd = skipDigits(number, integerStart);
+        if (integerEnd == length || integerEnd == integerStart) {
+            return -1;
+        }
+
+        int fractionEnd = integerEnd;
+        if (number.charAt(integerEnd) == '.') {
+            fractionEnd = skipDigits(number, integerEnd + 1);
+            if (fractionEnd == integerEnd + 1) {
+                return -1;
+            }
+        }
+        int significantEnd = fractionEnd;
+        while (significantEnd > integerEnd + 1 && number.charAt(significantEnd - 1) == '0') {
+            significantEnd--;
+        }
+        if (significantEnd == integerEnd + 1) {
+            significantEnd = integerEnd;
+        }
+
+        boolean negativeExponent = false;
+        int exponentStart = length;
+        if (fractionEnd < length) {
+            char e = number.charAt(fractionEnd);
+            if (e != 'e' && e != 'E' || fractionEnd + 1 == length) {
+                return -1;
+            }
+            exponentStart = fractionEnd + 1;
+            char sign = number.charAt(exponentStart);
+            if (sign == '+' || sign == '-') {
+                negativeExponent = sign == '-';
+                exponentStart++;
+            }
+            if (exponentStart == length || skipDigits(number, exponentStart) != length) {
+                return -1;
+            }
+            while (exponentStart < length - 1 && number.charAt(exponentStart) == '0') {
+                exponentStart++;
+            }
+            if (number.charAt(exponentStart) == '0') {
+                exponentStart = length;
+            }
+        }
+
+        if (significantEnd == integerEnd && integerEnd - integerStart == 1 && number.charAt(integerStart) == '0') {
+            return writeZero(number, integerStart, buffer);
+        }
+        if (this == PLAIN && length - exponentStart <= MAX_EXPONENT_DIGITS) {
+            int exponent = parseInt(number, exponentStart, length);
+            int plainLength = writePlain(number, integerStart, integerEnd, significantEnd,
+                    negativeExponent ? -exponent : exponent, buffer);
+            if (plainLength > -1) {
+                return isSame(number, buffer, plainLength) ? -1 : plainLength;
+            }
+        }
+        return writeCanonical(number, significantEnd, fractionEnd, negativeExponent, exponentStart, buffer);
+    }
+
+    private static int skipDigits(String number, int index) {
+        while (index < number.length() && isDigit(number.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int parseInt(String number, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + number.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static int writeZero(String number, int integerStart, char[] buffer) {
+        buffer[0] = '-';
+        buffer[integerStart] = '0';
+        return integerStart + 1 == number.length() ? -1 : integerStart + 1;
+    }
+
+    private static int writeCanonical(String number, int significantEnd, int fractionEnd,
+                                      boolean negativeExponent, int exponentStart, char[] buffer) {
+        number.getChars(0, significantEnd, buffer, 0);
+        int length = significantEnd;
+        if (exponentStart < number.length()) {
+            buffer[length++] = number.charAt(fractionEnd);
+            if (negativeExponent) {
+                buffer[length++] = '-';
+            }
+            number.getChars(exponentStart, number.length(), buffer, length);
+            length += number.length() - exponentStart;
+        }
+        return length == number.length() ? -1 : length;
+    }
+
+    /**
+     * Writes the number in plain notation, i.e. its significant digits with the decimal point moved by the exponent.
+     *
+     * @return the length of the plain form, or -1 if it needs too many zeros
+     */
+    private static int writePlain(String number, int integerStart, int integerEnd, int significantEnd,
+                                  int exponent, char[] buffer) {
+        int digitCount = integerEnd - integerStart + Math.max(0, significantEnd - integerEnd - 1);
+        int first = 0;
+        while (first < digitCount && digitAt(number, integerStart, integerEnd, first) == '0') {
+            first++;
+        }
+        if (first == digitCount) {
+            return -1;
+        }
+        int last = digitCount;
+        while (digitAt(number, integerStart, integerEnd, last - 1) == '0') {
+            last--;
+        }
+        long point = (long) integerEnd - integerStart - first + exponent;
+        long zeros = point <= 0 ? -point : Math.max(0, point - (last - first));
+        if (zeros > MAX_PLAIN_ZEROS) {
+            return -1;
+        }
+
+        int length = 0;
+        if (integerStart == 1) {
+            buffer[length++] = '-';
+        }
+        if (point <= 0) {
+            buffer[length++] = '0';
+            buffer[length++] = '.';
+            for (int i = 0; i < zeros; i++) {
+                buffer[length++] = '0';
+            }
+        }
+        for (int i = first; i < last; i++) {
+            if (point > 0 && i - first == point) {
+                buffer[length++] = '.';
+            }
+            buffer[length++] = digitAt(number, integerStart, integerEnd, i);
+        }
+        if (point > 0) {
+            for (int i = 0; i < zeros; i++) {
+                buffer[length++] = '0';
+            }
+        }
+        return length;
+    }
+
+    private static char digitAt(String number, int integerStart, int integerEnd, int index) {
+        int i = integerStart + index;
+        return number.charAt(i < integerEnd ? i : i + 1);
+    }
+
+    private static boolean isSame(String number, char[] buffer, int length) {
+        if (length != number.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != number.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
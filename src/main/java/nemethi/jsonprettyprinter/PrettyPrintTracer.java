@@ -0,0 +1,124 @@
+package nemethi.jsonprettyprinter;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.Writer;
+
+/**
+ * This is an auxiliary class for {@link JsonPrettyPrinter}.
+ * It begins and commits {@link JsonPrettyPrintEvent} and {@link JsonPrettyPrintChunkEvent}
+ * for a single pretty-printing job, and collects their fields.
+ * <p>
+ * This is the only class used by {@link JsonPrettyPrinter} that refers to Flight Recorder,
+ * and it is only used if the runtime contains the jdk.jfr module.
+ * The events are only created once Flight Recorder has been initialized, i.e. a recording has been created.
+ * Until then, no class of Flight Recorder is loaded besides {@link FlightRecorder}.
+ */
+final class PrettyPrintTracer {
+
+    private final JsonPrettyPrintEvent event;
+    private final boolean chunkEventEnabled;
+    private TracingWriter writer;
+    private JsonPrettyPrintChunkEvent chunkEvent;
+    private long chunkStart;
+    private long chunkReadTime;
+    private long chunkWriteTime;
+
+    private PrettyPrintTracer(JsonPrettyPrintEvent event, boolean chunkEventEnabled) {
+        this.event = event;
+        this.chunkEventEnabled = chunkEventEnabled;
+    }
+
+    /**
+     * Begins tracing a job, or returns null if Flight Recorder has not been initialized,
+     * or none of the events is enabled.
+     */
+    static PrettyPrintTracer start() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        JsonPrettyPrintEvent event = new JsonPrettyPrintEvent();
+        boolean chunkEventEnabled = new JsonPrettyPrintChunkEvent().isEnabled();
+        if (!event.isEnabled() && !chunkEventEnabled) {
+            return null;
+        }
+        if (event.isEnabled()) {
+            event.begin();
+            return new PrettyPrintTracer(event, chunkEventEnabled);
+        }
+        return new PrettyPrintTracer(null, chunkEventEnabled);
+    }
+
+    /**
+     * Returns a writer that counts the output written to the specified writer and measures the time spent writing it.
+     */
+    Writer wrap(Writer target) {
+        writer = new TracingWriter(target);
+        return writer;
+    }
+
+    void countInput(int length) {
+        if (event != null) {
+            event.inputLength += length;
+        }
+    }
+
+    void countTokens(int tokenCount) {
+        if (event != null) {
+            event.tokenCount += tokenCount;
+        }
+    }
+
+    void updateDepth(int depth) {
+        if (event != null && depth > event.depth) {
+            event.depth = depth;
+        }
+    }
+
+    void beginChunk() {
+        if (chunkEventEnabled) {
+            chunkEvent = new JsonPrettyPrintChunkEvent();
+            chunkEvent.begin();
+        }
+        chunkStart = System.nanoTime();
+        chunkWriteTime = writeTime();
+    }
+
+    void endRead() {
+        chunkReadTime = System.nanoTime() - chunkStart;
+        if (event != null) {
+            event.readTime += chunkReadTime;
+        }
+    }
+
+    void endChunk(int length, int tokenCount) {
+        if (chunkEvent == null) {
+            return;
+        }
+        chunkEvent.end();
+        if (chunkEvent.shouldCommit()) {
+            chunkEvent.length = length;
+            chunkEvent.tokenCount = tokenCount;
+            chunkEvent.readTime = chunkReadTime;
+            chunkEvent.writeTime = writeTime() - chunkWriteTime;
+            chunkEvent.commit();
+        }
+        chunkEvent = null;
+    }
+
+    void commit() {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (writer != null) {
+            event.outputLength = writer.length();
+            event.writeTime = writer.writeTime();
+        }
+        event.commit();
+    }
+
+    private long writeTime() {
+        return writer == null ? 0 : writer.writeTime();
+    }
+}
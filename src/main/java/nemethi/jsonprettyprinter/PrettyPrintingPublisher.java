@@ -0,0 +1,258 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Publishes the pretty-printed form of the UTF-8 encoded JSON published by an input publisher,
+ * as requested by its single subscriber. See {@link JsonPrettyPrinter#prettyPrint(Flow.Publisher)}.
+ * <p>
+ * All signals are handled by a drain loop, which is run by one thread at a time,
+ * whichever signalled last, so the underlying pretty-printer is never used concurrently.
+ * The loop prints one token at a time while there is demand for output and no full buffer,
+ * and requests the next input chunk only when the tokens of the previous ones have been printed.
+ */
+class PrettyPrintingPublisher implements Flow.Publisher<ByteBuffer> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final JsonPrettyPrinter printer;
+    private final Flow.Publisher<ByteBuffer> input;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    PrettyPrintingPublisher(JsonPrettyPrinter printer, Flow.Publisher<ByteBuffer> input) {
+        this.printer = printer;
+        this.input = input;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        requireNonNull(subscriber, "subscriber cannot be null");
+        if (subscribed.compareAndSet(false, true)) {
+            input.subscribe(new PrettyPrintingSubscription(subscriber));
+        } else {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("the publisher supports a single subscriber"));
+        }
+    }
+
+    private final class PrettyPrintingSubscription implements Flow.Subscriber<ByteBuffer>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private final Queue<ByteBuffer> inputChunks = new ConcurrentLinkedQueue<>();
+        private final StringWriter output = new StringWriter();
+        private final CharsetDecoder decoder = UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private volatile Flow.Subscription upstream;
+        private volatile boolean inputDone;
+        private volatile Throwable inputError;
+        private volatile Throwable requestError;
+        private volatile boolean cancelled;
+        private ByteBuffer inputChunk;
+        private boolean inputRequested;
+        private boolean inputDecoded;
+        private boolean inputEnded;
+        private boolean terminated;
+
+        private PrettyPrintingSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            printer.startChunks(output);
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(ByteBuffer chunk) {
+            inputChunks.offer(chunk);
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            inputError = throwable;
+            inputDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            inputDone = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("the number of requested buffers must be positive: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (pendingSignals.getAndIncrement() != 0) {
+                return;
+            }
+            int signals = 1;
+            do {
+                try {
+                    drainLoop();
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+
+        private void drainLoop() {
+            while (!terminated) {
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+                if (requestError != null) {
+                    fail(requestError);
+                    return;
+                }
+                int length = output.getBuffer().length();
+                if (length >= BUFFER_SIZE || (inputEnded && length > 0)) {
+                    if (demand.get() == 0) {
+                        return;
+                    }
+                    emit();
+                } else if (inputEnded) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                } else if (demand.get() == 0) {
+                    return;
+                } else if (!printer.prettyPrintNextToken() && !read()) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Tokenizes the next input chunk, or the end of the input.
+         *
+         * @return true if there was input to tokenize, false if there is none yet or the input failed
+         */
+        private boolean read() {
+            boolean done = inputDone;
+            if (inputChunk == null) {
+                inputChunk = inputChunks.poll();
+            }
+            if (inputChunk != null) {
+                inputRequested = false;
+                decode(false);
+                return true;
+            } else if (done && inputError != null) {
+                fail(inputError);
+                return false;
+            } else if (done && !inputDecoded) {
+                decode(true);
+                inputDecoded = true;
+                return true;
+            } else if (done) {
+                inputEnded = true;
+                return true;
+            }
+            if (!inputRequested) {
+                inputRequested = true;
+                upstream.request(1);
+            }
+            return false;
+        }
+
+        private void decode(boolean endOfInput) {
+            if (inputChunk != null) {
+                int length = Math.min(bytes.remaining(), inputChunk.remaining());
+                ByteBuffer slice = inputChunk.duplicate();
+                slice.limit(slice.position() + length);
+                bytes.put(slice);
+                inputChunk.position(slice.position());
+                if (!inputChunk.hasRemaining()) {
+                    inputChunk = null;
+                }
+            }
+            bytes.flip();
+            decoder.decode(bytes, chars, endOfInput);
+            if (endOfInput) {
+                decoder.flush(chars);
+            }
+            bytes.compact();
+            chars.flip();
+            printer.tokenizeChunk(chars.array(), chars.position(), chars.remaining());
+            chars.clear();
+        }
+
+        private void emit() {
+            StringBuffer buffer = output.getBuffer();
+            int length = Math.min(buffer.length(), BUFFER_SIZE);
+            if (length < buffer.length() && Character.isHighSurrogate(buffer.charAt(length - 1))) {
+                length--;
+            }
+            ByteBuffer encoded = UTF_8.encode(CharBuffer.wrap(buffer, 0, length));
+            buffer.delete(0, length);
+            demand.decrementAndGet();
+            subscriber.onNext(encoded);
+        }
+
+        private void fail(Throwable throwable) {
+            if (!terminated) {
+                terminate();
+                subscriber.onError(throwable);
+            }
+        }
+
+        private void terminate() {
+            if (!inputDone) {
+                upstream.cancel();
+            }
+            terminated = true;
+            inputChunks.clear();
+            inputChunk = null;
+            printer.endChunks();
+        }
+    }
+}
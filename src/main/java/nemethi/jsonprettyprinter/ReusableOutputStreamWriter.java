@@ -0,0 +1,114 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * This is an auxiliary class for {@link JsonPrettyPrinter}.
+ * Like {@link java.io.OutputStreamWriter}, it encodes the written characters with the default charset,
+ * and writes the bytes to an output stream.
+ * Unlike that class, the output stream can be replaced between documents, so the encoder and the buffers
+ * are allocated only once per pretty-printer.
+ * <p>
+ * Malformed and unmappable characters are replaced, like they are by {@link java.io.OutputStreamWriter}.
+ * The output stream is never closed by this writer.
+ */
+final class ReusableOutputStreamWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private OutputStream outputStream;
+
+    /**
+     * Starts writing to the specified output stream, discarding any characters not yet written to the previous one.
+     */
+    ReusableOutputStreamWriter target(OutputStream outputStream) {
+        this.outputStream = outputStream;
+        encoder.reset();
+        chars.clear();
+        bytes.clear();
+        return this;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode();
+        }
+        chars.put((char) c);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!chars.hasRemaining()) {
+                encode();
+            }
+            int count = Math.min(length, chars.remaining());
+            chars.put(buffer, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!chars.hasRemaining()) {
+                encode();
+            }
+            int count = Math.min(length, chars.remaining());
+            int position = chars.position();
+            string.getChars(offset, offset + count, chars.array(), chars.arrayOffset() + position);
+            chars.position(position + count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Encodes and writes the buffered characters, except a high surrogate written last,
+     * which is encoded together with the next character.
+     */
+    private void encode() throws IOException {
+        chars.flip();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, false);
+            if (result.isOverflow()) {
+                writeBytes();
+            }
+        } while (result.isOverflow());
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        outputStream.write(bytes.array(), bytes.arrayOffset(), bytes.limit());
+        bytes.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encode();
+        writeBytes();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,93 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The built-in {@link StreamCodec}s, backed by {@code java.util.zip}.
+ * Every codec uses bounded buffers, so neither the encoded nor the decoded data is held in memory as a whole.
+ */
+public enum StandardStreamCodec implements StreamCodec {
+
+    /**
+     * Passes the data through unchanged.
+     */
+    IDENTITY {
+        @Override
+        public InputStream decode(InputStream inputStream) {
+            return new NonClosingInputStream(inputStream);
+        }
+
+        @Override
+        public OutputStream encode(OutputStream outputStream) {
+            return new NonClosingOutputStream(outputStream);
+        }
+    },
+
+    /**
+     * The gzip file format.
+     */
+    GZIP {
+        @Override
+        public InputStream decode(InputStream inputStream) throws IOException {
+            return new GZIPInputStream(new NonClosingInputStream(inputStream), BUFFER_SIZE);
+        }
+
+        @Override
+        public OutputStream encode(OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(new NonClosingOutputStream(outputStream), BUFFER_SIZE);
+        }
+    },
+
+    /**
+     * The zlib format, i.e. deflate with a zlib header and checksum.
+     */
+    DEFLATE {
+        @Override
+        public InputStream decode(InputStream inputStream) {
+            return new InflaterInputStream(new NonClosingInputStream(inputStream));
+        }
+
+        @Override
+        public OutputStream encode(OutputStream outputStream) {
+            return new DeflaterOutputStream(new NonClosingOutputStream(outputStream));
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final class NonClosingInputStream extends FilterInputStream {
+
+        private NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
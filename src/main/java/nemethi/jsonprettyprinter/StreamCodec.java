@@ -0,0 +1,74 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ServiceLoader;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A codec that decodes the input and encodes the output of
+ * {@link JsonPrettyPrinter#prettyPrint(InputStream, StreamCodec, OutputStream, StreamCodec)},
+ * e.g. to read and write compressed JSON in a single pass.
+ * <p>
+ * The built-in codecs are listed in {@link StandardStreamCodec}.
+ * Other codecs (e.g. zstd) can be implemented by wrapping the streams of a third-party library,
+ * and can be made available to {@link StreamCodec#forName(String)} by registering them
+ * as a service provider of this interface.
+ * <p>
+ * The pretty-printer closes the streams returned by a codec once it is done with them.
+ * Closing these streams must release the resources of the codec and finish the encoding,
+ * but must not close the wrapped streams.
+ */
+public interface StreamCodec {
+
+    /**
+     * Returns the name of this codec, e.g. {@code gzip}.
+     *
+     * @return the name of this codec
+     */
+    String name();
+
+    /**
+     * Returns a stream that decodes the data read from the specified input stream.
+     *
+     * @param inputStream the encoded input stream
+     * @return the decoding input stream
+     * @throws IOException if an I/O error occurs
+     */
+    InputStream decode(InputStream inputStream) throws IOException;
+
+    /**
+     * Returns a stream that encodes the data written to it into the specified output stream.
+     *
+     * @param outputStream the target output stream
+     * @return the encoding output stream
+     * @throws IOException if an I/O error occurs
+     */
+    OutputStream encode(OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the codec with the specified name.
+     * The built-in codecs are looked up first, then the service providers of this interface.
+     *
+     * @param name the name of the codec, case-insensitive
+     * @return the codec with the specified name
+     * @throws NullPointerException     if {@code name} is null
+     * @throws IllegalArgumentException if there is no codec with the specified name
+     */
+    static StreamCodec forName(String name) {
+        requireNonNull(name, "name cannot be null");
+        for (StreamCodec codec : StandardStreamCodec.values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        for (StreamCodec codec : ServiceLoader.load(StreamCodec.class)) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("unknown codec: " + name);
+    }
+}
@@ -0,0 +1,326 @@
+package nemethi.jsonprettyprinter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is an auxiliary class for {@link IncrementalJsonPrettyPrinter}.
+ * It indexes the arrays and objects of a JSON document together with those of its pretty-printed form,
+ * so the member enclosing an edit, and its counterpart in the output, are located without scanning the text.
+ * <p>
+ * The commas of a structure split it into members, i.e. values or key-value pairs. A member spans all the text
+ * between the delimiters around it, including whitespace, so the members and the delimiters tile the structure.
+ * Only the lengths of the members are stored, in Fenwick trees, so the offset of a member is computed,
+ * the member at an offset is found, and the length of a member is updated in time logarithmic
+ * in the number of members of its structure.
+ */
+final class StructureIndex {
+
+    private StructureIndex() {
+    }
+
+    /**
+     * Parses the specified text as the members of a structure at the specified level,
+     * i.e. nested in that many other structures. Level -1 parses a whole document, which is a single member.
+     *
+     * @return the members, or null if the brackets or quotes are unbalanced, or a member is empty
+     */
+    static List<Member> parse(String text, int level) {
+        Parser parser = new Parser(text);
+        List<Member> members = parser.members(level);
+        return parser.position == text.length() ? members : null;
+    }
+
+    /**
+     * Copies the lengths of the specified pretty-printed member, parsed by {@link #parse(String, int)},
+     * into the corresponding member of the input.
+     *
+     * @return false if the structures of the members differ
+     */
+    static boolean copyOutput(Member member, Member output) {
+        member.outputLength = output.inputLength;
+        member.outputOffset = output.inputOffset;
+        Structure structure = member.structure;
+        Structure outputStructure = output.structure;
+        if (structure == null || outputStructure == null) {
+            return structure == outputStructure;
+        }
+        if (structure.members.size() != outputStructure.members.size()) {
+            return false;
+        }
+        for (int i = 0; i < structure.members.size(); i++) {
+            if (!copyOutput(structure.members.get(i), outputStructure.members.get(i))) {
+                return false;
+            }
+        }
+        structure.invalidate();
+        return true;
+    }
+
+    /**
+     * A value or key-value pair, with the whitespace around it.
+     */
+    static final class Member {
+
+        int inputLength;
+        int outputLength;
+        /**
+         * The offset of the array or object value in the member, if it has one.
+         */
+        int inputOffset;
+        int outputOffset;
+        /**
+         * The array or object value of the member, or null if the value is a scalar.
+         */
+        Structure structure;
+        /**
+         * Whether the member consists of whitespace only, like the single member of an empty structure.
+         */
+        boolean blank;
+    }
+
+    /**
+     * An array or object and its members.
+     * Offsets are relative to the opening bracket of the structure.
+     */
+    static final class Structure {
+
+        final boolean object;
+        final int level;
+        private List<Member> members;
+        /**
+         * Fenwick trees of the lengths of the members, each plus one for the delimiter following it.
+         * Null if they have to be rebuilt, since the members have been replaced.
+         */
+        private int[] inputTree;
+        private int[] outputTree;
+        private int inputLength;
+        private int outputLength;
+
+        private Structure(boolean object, int level, List<Member> members) {
+            this.object = object;
+            this.level = level;
+            this.members = members;
+        }
+
+        int size() {
+            return members.size();
+        }
+
+        Member member(int index) {
+            return members.get(index);
+        }
+
+        int inputLength() {
+            index();
+            return inputLength;
+        }
+
+        int outputLength() {
+            index();
+            return outputLength;
+        }
+
+        int inputOffset(int index) {
+            index();
+            return 1 + sum(inputTree, index);
+        }
+
+        int outputOffset(int index) {
+            index();
+            return 1 + sum(outputTree, index);
+        }
+
+        /**
+         * Returns the index of the member that spans the specified input offset,
+         * or, if the offset is at a delimiter, the member preceding it.
+         */
+        int memberAt(int inputOffset) {
+            index();
+            int remaining = inputOffset - 1;
+            int index = 0;
+            for (int step = Integer.highestOneBit(members.size()); step > 0; step >>= 1) {
+                if (index + step <= members.size() && inputTree[index + step] <= remaining) {
+                    index += step;
+                    remaining -= inputTree[index];
+                }
+            }
+            return Math.min(index, members.size() - 1);
+        }
+
+        /**
+         * Updates the lengths of the specified member, after the structure inside it has been edited.
+         */
+        void resize(int index, int inputDelta, int outputDelta) {
+            Member member = members.get(index);
+            member.inputLength += inputDelta;
+            member.outputLength += outputDelta;
+            updateLengths(index, inputDelta, outputDelta);
+        }
+
+        private void updateLengths(int index, int inputDelta, int outputDelta) {
+            index();
+            add(inputTree, index, inputDelta);
+            add(outputTree, index, outputDelta);
+            inputLength += inputDelta;
+            outputLength += outputDelta;
+        }
+
+        /**
+         * Replaces the members between {@code first} and {@code last} (both inclusive) with the specified ones.
+         * If their number changes, the trees are rebuilt, which costs time linear in the number of members.
+         */
+        void replace(int first, int last, List<Member> replacement) {
+            if (replacement.size() == last - first + 1) {
+                for (int i = 0; i < replacement.size(); i++) {
+                    Member member = replacement.get(i);
+                    Member previous = members.set(first + i, member);
+                    updateLengths(first + i, member.inputLength - previous.inputLength,
+                            member.outputLength - previous.outputLength);
+                }
+                return;
+            }
+            List<Member> edited = new ArrayList<>(members.size() - (last - first + 1) + replacement.size());
+            edited.addAll(members.subList(0, first));
+            edited.addAll(replacement);
+            edited.addAll(members.subList(last + 1, members.size()));
+            members = edited;
+            invalidate();
+        }
+
+        private void invalidate() {
+            inputTree = null;
+            outputTree = null;
+        }
+
+        private void index() {
+            if (inputTree != null) {
+                return;
+            }
+            int size = members.size();
+            inputTree = new int[size + 1];
+            outputTree = new int[size + 1];
+            inputLength = 1;
+            outputLength = 1;
+            for (int i = 0; i < size; i++) {
+                Member member = members.get(i);
+                inputTree[i + 1] = member.inputLength + 1;
+                outputTree[i + 1] = member.outputLength + 1;
+                inputLength += member.inputLength + 1;
+                outputLength += member.outputLength + 1;
+            }
+            for (int i = 1; i <= size; i++) {
+                int parent = i + (i & -i);
+                if (parent <= size) {
+                    inputTree[parent] += inputTree[i];
+                    outputTree[parent] += outputTree[i];
+                }
+            }
+        }
+
+        private static int sum(int[] tree, int count) {
+            int sum = 0;
+            for (int i = count; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        private static void add(int[] tree, int index, int delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+    }
+
+    private static final class Parser {
+
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private List<Member> members(int level) {
+            List<Member> members = new ArrayList<>();
+            while (true) {
+                Member member = member(level);
+                if (member == null) {
+                    return null;
+                }
+                members.add(member);
+                if (position == text.length() || text.charAt(position) != ',') {
+                    break;
+                }
+                position++;
+            }
+            if (members.size() > 1) {
+                for (Member member : members) {
+                    if (member.blank) {
+                        return null;
+                    }
+                }
+            }
+            return members;
+        }
+
+        private Member member(int level) {
+            Member member = new Member();
+            member.blank = true;
+            int start = position;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == ',' || c == ']' || c == '}') {
+                    break;
+                }
+                if (c == '"') {
+                    if (!skipString()) {
+                        return null;
+                    }
+                } else if (c == '[' || c == '{') {
+                    if (member.structure != null) {
+                        return null;
+                    }
+                    member.inputOffset = position - start;
+                    member.structure = structure(level + 1);
+                    if (member.structure == null) {
+                        return null;
+                    }
+                } else {
+                    position++;
+                    if (Character.isWhitespace(c)) {
+                        continue;
+                    }
+                }
+                member.blank = false;
+            }
+            member.inputLength = position - start;
+            return member;
+        }
+
+        private Structure structure(int level) {
+            char opening = text.charAt(position++);
+            List<Member> members = members(level);
+            char closing = opening == '[' ? ']' : '}';
+            if (members == null || position == text.length() || text.charAt(position) != closing) {
+                return null;
+            }
+            position++;
+            return new Structure(opening == '{', level, members);
+        }
+
+        private boolean skipString() {
+            position++;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '\\') {
+                    position++;
+                } else if (c == '"') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
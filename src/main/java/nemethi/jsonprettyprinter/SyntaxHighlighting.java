@@ -0,0 +1,86 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The syntax highlighting modes of {@link JsonPrettyPrinter}.
+ * <p>
+ * Highlighting is done while pretty-printing, in the same pass.
+ * Every token is surrounded by a prefix and a suffix, which are looked up from a table by the type of the token:
+ * structural characters, object keys, strings, numbers and literals ({@code true}, {@code false} and {@code null})
+ * are styled differently.
+ */
+public enum SyntaxHighlighting {
+
+    /**
+     * No highlighting.
+     */
+    NONE(new String[]{"", "", "", "", ""}, new String[]{"", "", "", "", ""}),
+
+    /**
+     * Highlighting with ANSI escape sequences, for terminals.
+     * Structural characters are not styled.
+     */
+    ANSI(new String[]{"", "\u001B[1;34m", "\u001B[32m", "\u001B[36m", "\u001B[35m"},
+            new String[]{"", "\u001B[0m", "\u001B[0m", "\u001B[0m", "\u001B[0m"}),
+
+    /**
+     * Highlighting with HTML {@code span} elements, which can be styled with CSS.
+     * The class names of the elements are {@code json-structural}, {@code json-key}, {@code json-string},
+     * {@code json-number} and {@code json-literal}.
+     * The characters {@code <}, {@code >} and {@code &} are escaped as HTML entities.
+     * The output is meant to be embedded in a {@code pre} element.
+     */
+    HTML(new String[]{
+            "<span class=\"json-structural\">",
+            "<span class=\"json-key\">",
+            "<span class=\"json-string\">",
+            "<span class=\"json-number\">",
+            "<span class=\"json-literal\">"},
+            new String[]{"</span>", "</span>", "</span>", "</span>", "</span>"});
+
+    private final String[] prefixes;
+    private final String[] suffixes;
+
+    SyntaxHighlighting(String[] prefixes, String[] suffixes) {
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+    }
+
+    void print(String token, TokenType type, Writer writer) throws IOException {
+        writer.write(prefixes[type.ordinal()]);
+        if (this == HTML) {
+            printEscaped(token, writer);
+        } else {
+            writer.write(token);
+        }
+        writer.write(suffixes[type.ordinal()]);
+    }
+
+    private void printEscaped(String token, Writer writer) throws IOException {
+        int start = 0;
+        for (int i = 0; i < token.length(); i++) {
+            String entity = entity(token.charAt(i));
+            if (entity != null) {
+                writer.write(token, start, i - start);
+                writer.write(entity);
+                start = i + 1;
+            }
+        }
+        writer.write(token, start, token.length() - start);
+    }
+
+    private String entity(char c) {
+        switch (c) {
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '&':
+                return "&amp;";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package nemethi.jsonprettyprinter;
+
+/**
+ * This is an auxiliary type for {@link JsonPrettyPrinter}.
+ * It classifies the tokens produced by {@link JsonTokenizer}.
+ */
+enum TokenType {
+    STRUCTURAL,
+    KEY,
+    STRING,
+    NUMBER,
+    LITERAL
+}
@@ -0,0 +1,65 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This is an auxiliary class for {@link JsonPrettyPrinter}.
+ * It counts the characters written to the underlying writer and measures the time spent writing them,
+ * for {@link JsonPrettyPrintEvent} and {@link JsonPrettyPrintChunkEvent}.
+ * It is only used by {@link PrettyPrintTracer} while one of those events is enabled.
+ */
+final class TracingWriter extends Writer {
+
+    private final Writer writer;
+    private long length;
+    private long writeTime;
+
+    TracingWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    long length() {
+        return length;
+    }
+
+    long writeTime() {
+        return writeTime;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        long start = System.nanoTime();
+        writer.write(c);
+        writeTime += System.nanoTime() - start;
+        length++;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        writer.write(chars, offset, length);
+        writeTime += System.nanoTime() - start;
+        this.length += length;
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        writer.write(string, offset, length);
+        writeTime += System.nanoTime() - start;
+        this.length += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        writer.flush();
+        writeTime += System.nanoTime() - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,130 @@
+package nemethi.jsonprettyprinter;
+
+/**
+ * The Unicode escaping modes of {@link JsonPrettyPrinter}, applied to strings, including object keys.
+ * <p>
+ * Strings that need no transformation, i.e. strings without backslashes when unescaping
+ * and strings without non-ASCII characters when escaping, are printed as they are, without copying.
+ */
+public enum UnicodeEscaping {
+
+    /**
+     * Strings are printed as they are.
+     */
+    NONE,
+
+    /**
+     * {@code \}{@code uXXXX} escape sequences are replaced with the characters they represent, for readability.
+     * Surrogate pairs are replaced only if both halves are escaped and valid together.
+     * Escape sequences of characters which cannot appear unescaped in JSON strings,
+     * i.e. quotation marks, backslashes and control characters, are kept, as are lone surrogates.
+     */
+    UNESCAPE,
+
+    /**
+     * Non-ASCII characters are replaced with {@code \}{@code uXXXX} escape sequences,
+     * e.g. for sinks which only accept ASCII. Characters outside the Basic Multilingual Plane
+     * are escaped as surrogate pairs.
+     */
+    ESCAPE;
+
+    private static final char ESCAPE_CHARACTER = '\\';
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int ESCAPE_SEQUENCE_LENGTH = 6;
+
+    /**
+     * Returns the transformed string, or the specified string itself if it needs no transformation.
+     *
+     * @param string  the string token, including its quotation marks
+     * @param scratch a buffer for building the transformed string
+     */
+    String apply(String string, StringBuilder scratch) {
+        switch (this) {
+            case UNESCAPE:
+                return string.indexOf(ESCAPE_CHARACTER) < 0 ? string : unescape(string, scratch);
+            case ESCAPE:
+                int firstNonAscii = firstNonAscii(string);
+                return firstNonAscii < 0 ? string : escape(string, firstNonAscii, scratch);
+            default:
+                return string;
+        }
+    }
+
+    private static String unescape(String string, StringBuilder scratch) {
+        scratch.setLength(0);
+        int start = 0;
+        int i = string.indexOf(ESCAPE_CHARACTER);
+        while (i > -1) {
+            int codeUnit = codeUnitAt(string, i);
+            int length = 0;
+            if (codeUnit > -1 && Character.isHighSurrogate((char) codeUnit)) {
+                int lowSurrogate = codeUnitAt(string, i + ESCAPE_SEQUENCE_LENGTH);
+                if (lowSurrogate > -1 && Character.isLowSurrogate((char) lowSurrogate)) {
+                    scratch.append(string, start, i).append((char) codeUnit).append((char) lowSurrogate);
+                    length = 2 * ESCAPE_SEQUENCE_LENGTH;
+                }
+            } else if (codeUnit > -1 && isUnescapable((char) codeUnit)) {
+                scratch.append(string, start, i).append((char) codeUnit);
+                length = ESCAPE_SEQUENCE_LENGTH;
+            }
+            if (length > 0) {
+                start = i + length;
+                i = string.indexOf(ESCAPE_CHARACTER, start);
+            } else {
+                i = string.indexOf(ESCAPE_CHARACTER, i + 2);
+            }
+        }
+        if (start == 0) {
+            return string;
+        }
+        return scratch.append(string, start, string.length()).toString();
+    }
+
+    private static int codeUnitAt(String string, int index) {
+        if (index + ESCAPE_SEQUENCE_LENGTH > string.length()
+                || string.charAt(index) != ESCAPE_CHARACTER
+                || string.charAt(index + 1) != 'u') {
+            return -1;
+        }
+        int codeUnit = 0;
+        for (int i = index + 2; i < index + ESCAPE_SEQUENCE_LENGTH; i++) {
+            int digit = Character.digit(string.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            codeUnit = codeUnit << 4 | digit;
+        }
+        return codeUnit;
+    }
+
+    private static boolean isUnescapable(char c) {
+        return c >= 0x20 && c != '"' && c != ESCAPE_CHARACTER && !Character.isSurrogate(c);
+    }
+
+    private static int firstNonAscii(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0x7F) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String escape(String string, int firstNonAscii, StringBuilder scratch) {
+        scratch.setLength(0);
+        int start = 0;
+        for (int i = firstNonAscii; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c > 0x7F) {
+                scratch.append(string, start, i)
+                        .append(ESCAPE_CHARACTER).append('u')
+                        .append(HEX_DIGITS[c >> 12 & 0xF])
+                        .append(HEX_DIGITS[c >> 8 & 0xF])
+                        .append(HEX_DIGITS[c >> 4 & 0xF])
+                        .append(HEX_DIGITS[c & 0xF]);
+                start = i + 1;
+            }
+        }
+        return scratch.append(string, start, string.length()).toString();
+    }
+}
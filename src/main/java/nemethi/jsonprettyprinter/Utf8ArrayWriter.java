@@ -0,0 +1,117 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.Writer;
+
+/**
+ * This is an auxiliary class for {@link JsonPrettyPrinter}.
+ * It encodes the written characters as UTF-8 into a byte array of fixed size,
+ * or, without an array, only counts the characters and the bytes they would be encoded to.
+ * <p>
+ * Like {@link String#getBytes(java.nio.charset.Charset)}, lone surrogates are encoded as {@code ?}.
+ * A high surrogate written last is encoded when the writer is closed.
+ */
+final class Utf8ArrayWriter extends Writer {
+
+    private static final byte REPLACEMENT = '?';
+
+    private final byte[] array;
+    private long charCount;
+    private long byteCount;
+    private char highSurrogate;
+
+    /**
+     * Creates a new instance that only counts characters and bytes.
+     */
+    Utf8ArrayWriter() {
+        this(null);
+    }
+
+    /**
+     * Creates a new instance that writes to the specified array, which must be large enough for the whole output.
+     */
+    Utf8ArrayWriter(byte[] array) {
+        this.array = array;
+    }
+
+    long charCount() {
+        return charCount;
+    }
+
+    long byteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public void write(int c) {
+        encode((char) c);
+        charCount++;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            encode(chars[i]);
+        }
+        charCount += length;
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            encode(string.charAt(i));
+        }
+        charCount += length;
+    }
+
+    private void encode(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                encodeCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+            put(REPLACEMENT);
+        }
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | c >> 6));
+            put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            put(REPLACEMENT);
+        } else {
+            put((byte) (0xE0 | c >> 12));
+            put((byte) (0x80 | c >> 6 & 0x3F));
+            put((byte) (0x80 | c & 0x3F));
+        }
+    }
+
+    private void encodeCodePoint(int codePoint) {
+        put((byte) (0xF0 | codePoint >> 18));
+        put((byte) (0x80 | codePoint >> 12 & 0x3F));
+        put((byte) (0x80 | codePoint >> 6 & 0x3F));
+        put((byte) (0x80 | codePoint & 0x3F));
+    }
+
+    private void put(byte b) {
+        if (array != null) {
+            array[(int) byteCount] = b;
+        }
+        byteCount++;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            put(REPLACEMENT);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package nemethi.jsonprettyprinter;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This is an auxiliary class for {@link JsonPrettyPrinter}.
+ * It encodes the written characters as UTF-8 directly into a byte buffer, which may be a direct buffer.
+ * <p>
+ * When the buffer fills up, the characters that do not fit are retained, and they are encoded
+ * into the next buffer by {@link #drain()} before anything else.
+ * Since the pretty-printer stops writing once the buffer is full, only the rest of the current token is retained.
+ * <p>
+ * Like {@link String#getBytes(java.nio.charset.Charset)}, lone surrogates are encoded as {@code ?}.
+ * Surrogate pairs must be written in a single invocation.
+ */
+final class Utf8BufferWriter extends Writer {
+
+    private static final byte REPLACEMENT = '?';
+    private static final int MAX_RETAINED_LENGTH = 65536;
+
+    private ByteBuffer buffer;
+    private char[] pending = new char[64];
+    private int pendingStart;
+    private int pendingEnd;
+
+    void target(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean hasPending() {
+        return pendingStart < pendingEnd;
+    }
+
+    /**
+     * Encodes the retained characters into the buffer.
+     *
+     * @return true if all the retained characters have been encoded, false if the buffer is full
+     */
+    boolean drain() {
+        while (pendingStart < pendingEnd) {
+            char next = pendingStart + 1 < pendingEnd ? pending[pendingStart + 1] : 0;
+            int count = encode(pending[pendingStart], next);
+            if (count == 0) {
+                return false;
+            }
+            pendingStart += count;
+        }
+        pendingStart = 0;
+        pendingEnd = 0;
+        return true;
+    }
+
+    /**
+     * Discards the retained characters and the buffer.
+     */
+    void clear() {
+        buffer = null;
+        pendingStart = 0;
+        pendingEnd = 0;
+        if (pending.length > MAX_RETAINED_LENGTH) {
+            pending = new char[64];
+        }
+    }
+
+    @Override
+    public void write(int c) {
+        if (hasPending() || encode((char) c, (char) 0) == 0) {
+            retain((char) c);
+        }
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (!hasPending() && i < end) {
+            int count = encode(chars[i], i + 1 < end ? chars[i + 1] : 0);
+            if (count == 0) {
+                break;
+            }
+            i += count;
+        }
+        for (; i < end; i++) {
+            retain(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (!hasPending() && i < end) {
+            int count = encode(string.charAt(i), i + 1 < end ? string.charAt(i + 1) : 0);
+            if (count == 0) {
+                break;
+            }
+            i += count;
+        }
+        for (; i < end; i++) {
+            retain(string.charAt(i));
+        }
+    }
+
+    /**
+     * Encodes the specified character, or the surrogate pair of it and the next character, if there is room for it.
+     *
+     * @return the number of characters encoded, 0 if there is no room in the buffer
+     */
+    private int encode(char c, char next) {
+        if (c < 0x80) {
+            if (!buffer.hasRemaining()) {
+                return 0;
+            }
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            if (buffer.remaining() < 2) {
+                return 0;
+            }
+            buffer.put((byte) (0xC0 | c >> 6));
+            buffer.put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+            if (buffer.remaining() < 4) {
+                return 0;
+            }
+            int codePoint = Character.toCodePoint(c, next);
+            buffer.put((byte) (0xF0 | codePoint >> 18));
+            buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+            buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+            buffer.put((byte) (0x80 | codePoint & 0x3F));
+            return 2;
+        } else if (Character.isSurrogate(c)) {
+            if (!buffer.hasRemaining()) {
+                return 0;
+            }
+            buffer.put(REPLACEMENT);
+        } else {
+            if (buffer.remaining() < 3) {
+                return 0;
+            }
+            buffer.put((byte) (0xE0 | c >> 12));
+            buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+            buffer.put((byte) (0x80 | c & 0x3F));
+        }
+        return 1;
+    }
+
+    private void retain(char c) {
+        if (pendingEnd == pending.length) {
+            if (pendingStart > 0) {
+                System.arraycopy(pending, pendingStart, pending, 0, pendingEnd - pendingStart);
+                pendingEnd -= pendingStart;
+                pendingStart = 0;
+            } else {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+        }
+        pending[pendingEnd++] = c;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,71 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContainerStackTest {
+
+    private ContainerStack stack;
+
+    @BeforeEach
+    void setUp() {
+        stack = new ContainerStack();
+    }
+
+    @Test
+    void emptyStack() {
+        assertEquals(0, stack.depth());
+        assertFalse(stack.isInObject());
+        assertFalse(stack.isInArray());
+    }
+
+    @Test
+    void tracksContainerTypes() {
+        stack.push(true);
+        stack.push(false);
+
+        assertEquals(2, stack.depth());
+        assertTrue(stack.isInArray());
+
+        stack.pop();
+
+        assertEquals(1, stack.depth());
+        assertTrue(stack.isInObject());
+    }
+
+    @Test
+    void tracksContainerTypesBeyondOneWord() {
+        final int depth = 1000;
+        for (int i = 0; i < depth; i++) {
+            stack.push(i % 3 == 0);
+        }
+
+        for (int i = depth - 1; i >= 0; i--) {
+            assertEquals(i % 3 == 0, stack.isInObject(), "assert container type at level " + i);
+            stack.pop();
+        }
+        assertEquals(0, stack.depth());
+    }
+
+    @Test
+    void popOnEmptyStack() {
+        stack.pop();
+
+        assertEquals(0, stack.depth());
+    }
+
+    @Test
+    void clear() {
+        stack.push(true);
+        stack.push(true);
+
+        stack.clear();
+
+        assertEquals(0, stack.depth());
+        assertFalse(stack.isInObject());
+    }
+}
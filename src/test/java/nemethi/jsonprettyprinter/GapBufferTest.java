@@ -0,0 +1,73 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GapBufferTest {
+
+    private GapBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new GapBuffer();
+    }
+
+    @Test
+    void emptyBuffer() {
+        assertEquals(0, buffer.length());
+        assertEquals("", buffer.toString());
+    }
+
+    @Test
+    void resetReplacesText() {
+        buffer.replace(0, 0, "abc");
+
+        buffer.reset("json");
+
+        assertEquals(4, buffer.length());
+        assertEquals("json", buffer.toString());
+    }
+
+    @Test
+    void replacesRanges() {
+        buffer.reset("[1,2,3]");
+
+        buffer.replace(3, 4, "true");
+        buffer.replace(1, 2, "");
+        buffer.replace(buffer.length() - 1, buffer.length() - 1, ",4");
+
+        assertEquals("[,true,3,4]", buffer.toString());
+    }
+
+    @Test
+    void substringSpansGap() {
+        buffer.reset("abcdef");
+        buffer.replace(3, 3, "XY");
+
+        assertEquals("abc", buffer.substring(0, 3));
+        assertEquals("cXYd", buffer.substring(2, 6));
+        assertEquals("def", buffer.substring(5, 8));
+    }
+
+    @Test
+    void randomEditsMatchStringBuilder() {
+        Random random = new Random(42);
+        StringBuilder expected = new StringBuilder("0123456789");
+        buffer.reset(expected.toString());
+        for (int i = 0; i < 1000; i++) {
+            int start = random.nextInt(expected.length() + 1);
+            int end = start + random.nextInt(Math.min(5, expected.length() - start) + 1);
+            String replacement = "x".repeat(random.nextInt(200));
+
+            expected.replace(start, end, replacement);
+            buffer.replace(start, end, replacement);
+
+            assertEquals(expected.length(), buffer.length());
+        }
+        assertEquals(expected.toString(), buffer.toString());
+    }
+}
@@ -0,0 +1,293 @@
+package nemethi.jsonprettyprinter;
+
+import nemethi.jsonprettyprinter.IncrementalJsonPrettyPrinter.Edit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalJsonPrettyPrinterTest {
+
+    private static final String JSON = "{\"a\":[1,{\"b\":\"x]\"}],\"c\":{\"d\":[true,null]}}";
+
+    private JsonPrettyPrinter printer;
+    private IncrementalJsonPrettyPrinter incrementalPrinter;
+
+    @BeforeEach
+    void setUp() {
+        printer = new JsonPrettyPrinter();
+        incrementalPrinter = new IncrementalJsonPrettyPrinter(printer);
+    }
+
+    @Test
+    void nullPrinter() {
+        assertThrows(NullPointerException.class,
+                () -> new IncrementalJsonPrettyPrinter(null),
+                "printer cannot be null");
+    }
+
+    @Test
+    void nullJson() {
+        assertThrows(NullPointerException.class,
+                () -> incrementalPrinter.prettyPrint(null),
+                "json cannot be null");
+    }
+
+    @Test
+    void nullReplacement() {
+        incrementalPrinter.prettyPrint(JSON);
+
+        assertThrows(NullPointerException.class,
+                () -> incrementalPrinter.reformat(0, 0, null),
+                "replacement cannot be null");
+    }
+
+    @Test
+    void editOutOfBounds() {
+        incrementalPrinter.prettyPrint(JSON);
+
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> incrementalPrinter.reformat(5, JSON.length() + 1, ""));
+    }
+
+    @Test
+    void printsWholeDocument() {
+        assertEquals(prettyPrint(JSON), incrementalPrinter.prettyPrint(JSON));
+        assertEquals(JSON, incrementalPrinter.getInput());
+        assertEquals(prettyPrint(JSON), incrementalPrinter.getOutput());
+    }
+
+    @Test
+    void editsEmptyDocument() {
+        Edit edit = incrementalPrinter.reformat(0, 0, JSON);
+
+        assertEquals(prettyPrint(JSON), edit.getReplacement());
+        assertEquals(prettyPrint(JSON), incrementalPrinter.getOutput());
+    }
+
+    @Test
+    void replacesMemberOfInnermostStructure() {
+        int start = JSON.indexOf("true");
+
+        Edit edit = assertReformats(start, start + 4, "false");
+
+        assertEquals("\n      false", normalizeLineEndings(edit.getReplacement()));
+    }
+
+    @Test
+    void replacesLastMemberWithClosingLine() {
+        int start = JSON.indexOf("null");
+
+        Edit edit = assertReformats(start, start + 4, "1");
+
+        assertEquals("\n      1\n    ", normalizeLineEndings(edit.getReplacement()));
+    }
+
+    @Test
+    void insertsMemberIntoStructure() {
+        int start = JSON.indexOf("[1") + 1;
+
+        Edit edit = assertReformats(start, start, "[],");
+
+        assertEquals("\n    [],\n    1", normalizeLineEndings(edit.getReplacement()));
+    }
+
+    @Test
+    void removesMembers() {
+        int start = JSON.indexOf("true");
+
+        assertReformats(start, start + "true,".length(), "");
+        assertReformats(start, start + "null".length(), "");
+        assertReformats(start, start, "1");
+    }
+
+    @Test
+    void editsStringContainingStructuralCharacters() {
+        int start = JSON.indexOf("x]");
+
+        Edit edit = assertReformats(start, start + 2, "{[y");
+
+        assertEquals("\n      \"b\": \"{[y\"\n    ", normalizeLineEndings(edit.getReplacement()));
+    }
+
+    @Test
+    void replacesWholeStructure() {
+        int start = JSON.indexOf("{\"d\"");
+        int end = JSON.indexOf("}}") + 1;
+
+        assertReformats(start, end, "[]");
+    }
+
+    @Test
+    void editAcrossMembersReformatsThoseMembers() {
+        int start = JSON.indexOf("1,{");
+        int end = JSON.indexOf("\"c\"");
+
+        Edit edit = assertReformats(start, end, "2],");
+
+        assertEquals(1, edit.getStart());
+    }
+
+    @Test
+    void editOfRootMemberReformatsOnlyThatMember() {
+        String json = "[" + "1,".repeat(10_000) + "1]";
+        incrementalPrinter.prettyPrint(json);
+        int start = json.length() / 2;
+
+        Edit edit = assertReformats(json, start, start + 1, "[true]");
+
+        assertTrue(edit.getEnd() - edit.getStart() < 10, "assert only the member is replaced");
+    }
+
+    @Test
+    void malformedMemberReformatsEnclosingMember() {
+        int start = JSON.indexOf("\"x]\"");
+
+        Edit edit = assertReformats(start, start + 1, "");
+
+        assertEquals(0, edit.getStart());
+        assertReformats(start, start, "\"");
+    }
+
+    @Test
+    void editOutsideOfStructuresReformatsWholeDocument() {
+        Edit edit = assertReformats(0, 0, " \n");
+
+        assertEquals(0, edit.getStart());
+    }
+
+    @Test
+    void highlightedOutputIsReformattedAsWhole() {
+        printer.setSyntaxHighlighting(SyntaxHighlighting.HTML);
+        int start = JSON.indexOf("true");
+
+        Edit edit = assertReformats(start, start + 4, "false");
+
+        assertEquals(0, edit.getStart());
+    }
+
+    @Test
+    void failedEditLeavesDocumentUnchanged() {
+        printer = new JsonPrettyPrinter(2, 4);
+        incrementalPrinter = new IncrementalJsonPrettyPrinter(printer);
+        incrementalPrinter.prettyPrint(JSON);
+        int start = JSON.indexOf("true");
+
+        assertThrows(IllegalArgumentException.class, () -> incrementalPrinter.reformat(start, start + 4, "[[1]]"));
+
+        assertEquals(JSON, incrementalPrinter.getInput());
+        assertEquals(prettyPrint(JSON), incrementalPrinter.getOutput());
+        assertReformats(start, start + 4, "[1]");
+    }
+
+    @Test
+    void randomEditsMatchFullReformat() {
+        Random random = new Random(42);
+        RandomJsonGenerator generator = new RandomJsonGenerator(42, RandomJsonGenerator.Shape.MIXED, 2);
+        for (int i = 0; i < 200; i++) {
+            String json = generator.next().json;
+            incrementalPrinter.prettyPrint(json);
+            for (int j = 0; j < 10; j++) {
+                String message = "document #" + i + ", edit #" + j;
+                json = incrementalPrinter.getInput();
+                int edit = json.indexOf('"') < 0 ? random.nextInt(2) : random.nextInt(3);
+                switch (edit) {
+                    case 0:
+                        int start = randomPosition(json, random, '[', '{');
+                        assertReformats(json, start, structureEnd(json, start) + 1, "[1,{\"k\":[]}]", message);
+                        break;
+                    case 1:
+                        start = randomPosition(json, random, '[', '{') + 1;
+                        String member = json.charAt(start - 1) == '[' ? "0" : "\"n\":0";
+                        boolean empty = json.substring(start).trim().charAt(0) == (json.charAt(start - 1) == '[' ? ']' : '}');
+                        assertReformats(json, start, start, empty ? member : member + ",", message);
+                        break;
+                    default:
+                        start = randomPosition(json, random, '"') + 1;
+                        assertReformats(json, start, start, "x", message);
+                        break;
+                }
+            }
+        }
+    }
+
+    private Edit assertReformats(int start, int end, String replacement) {
+        if (incrementalPrinter.getInput().isEmpty()) {
+            incrementalPrinter.prettyPrint(JSON);
+        }
+        return assertReformats(incrementalPrinter.getInput(), start, end, replacement);
+    }
+
+    private Edit assertReformats(String json, int start, int end, String replacement) {
+        return assertReformats(json, start, end, replacement, null);
+    }
+
+    private Edit assertReformats(String json, int start, int end, String replacement, String message) {
+        String output = incrementalPrinter.getOutput();
+        String input = json.substring(0, start) + replacement + json.substring(end);
+
+        Edit edit = incrementalPrinter.reformat(start, end, replacement);
+
+        assertEquals(prettyPrint(input), edit.applyTo(output), message);
+        assertEquals(input, incrementalPrinter.getInput(), message);
+        assertEquals(edit.applyTo(output), incrementalPrinter.getOutput(), message);
+        return edit;
+    }
+
+    private String prettyPrint(String json) {
+        StringWriter writer = new StringWriter();
+        printer.prettyPrint(json, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Returns a random position of one of the specified characters outside of strings,
+     * where a quote is the start of a string.
+     */
+    private int randomPosition(String json, Random random, char... characters) {
+        List<Integer> positions = new ArrayList<>();
+        boolean betweenQuotes = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '\\' && betweenQuotes) {
+                i++;
+                continue;
+            }
+            if (!betweenQuotes && new String(characters).indexOf(c) >= 0) {
+                positions.add(i);
+            }
+            if (c == '"') {
+                betweenQuotes = !betweenQuotes;
+            }
+        }
+        return positions.get(random.nextInt(positions.size()));
+    }
+
+    private int structureEnd(String json, int start) {
+        int depth = 0;
+        boolean betweenQuotes = false;
+        for (int i = start; ; i++) {
+            char c = json.charAt(i);
+            if (c == '\\' && betweenQuotes) {
+                i++;
+            } else if (c == '"') {
+                betweenQuotes = !betweenQuotes;
+            } else if (!betweenQuotes && (c == '[' || c == '{')) {
+                depth++;
+            } else if (!betweenQuotes && (c == ']' || c == '}') && --depth == 0) {
+                return i;
+            }
+        }
+    }
+
+    private String normalizeLineEndings(String s) {
+        return s.replaceAll("\\r\\n?", "\n");
+    }
+}
@@ -0,0 +1,188 @@
+package nemethi.jsonprettyprinter;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonPrettyPrintEventTest {
+
+    private static final String JSON = "{\"key\":[1,{\"inner\":[true]},\"value\"]}";
+
+    @TempDir
+    Path directory;
+
+    private JsonPrettyPrinter printer;
+
+    @BeforeEach
+    void setUp() {
+        printer = new JsonPrettyPrinter();
+    }
+
+    @Test
+    void noEventsByDefault() throws IOException {
+        List<RecordedEvent> events = record(new Recording(), () -> printer.prettyPrint(JSON, new StringWriter()));
+
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void prettyPrintToWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        List<RecordedEvent> events = record(recording(), () -> printer.prettyPrint(JSON, writer));
+
+        assertEquals(1, events.size());
+        assertPrettyPrintEvent(events.get(0), JSON.length(), writer.toString().length());
+    }
+
+    @Test
+    void prettyPrintToString() throws IOException {
+        String[] output = new String[1];
+
+        List<RecordedEvent> events = record(recording(), () -> output[0] = printer.prettyPrintToString(JSON));
+
+        assertEquals(1, events.size());
+        assertPrettyPrintEvent(events.get(0), JSON.length(), output[0].length());
+    }
+
+    @Test
+    void prettyPrintReader() throws IOException {
+        String json = "[" + (JSON + ",").repeat(1000) + JSON + "]";
+        StringWriter writer = new StringWriter();
+
+        List<RecordedEvent> events = record(recording(),
+                () -> printer.prettyPrint(new StringReader(json), writer));
+
+        List<RecordedEvent> chunkEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals(JsonPrettyPrintChunkEvent.NAME))
+                .collect(Collectors.toList());
+        List<RecordedEvent> prettyPrintEvents = events.stream()
+                .filter(event -> event.getEventType().getName().equals(JsonPrettyPrintEvent.NAME))
+                .collect(Collectors.toList());
+        assertTrue(chunkEvents.size() > 1);
+        assertEquals(1, prettyPrintEvents.size());
+        RecordedEvent event = prettyPrintEvents.get(0);
+        assertEquals(json.length(), event.getLong("inputLength"));
+        assertEquals(writer.toString().length(), event.getLong("outputLength"));
+        assertEquals(5, event.getInt("depth"));
+        assertEquals(json.length(), chunkEvents.stream().mapToInt(chunk -> chunk.getInt("length")).sum());
+        assertEquals(event.getLong("tokenCount"),
+                chunkEvents.stream().mapToInt(chunk -> chunk.getInt("tokenCount")).sum());
+    }
+
+    @Test
+    void eventPerJson() throws IOException {
+        List<RecordedEvent> events = record(recording(), () -> {
+            printer.prettyPrint(JSON, new StringWriter());
+            printer.prettyPrint("[]", new StringWriter());
+        });
+
+        assertEquals(2, events.size());
+        assertEquals(2, events.get(1).getLong("inputLength"));
+        assertEquals(2, events.get(1).getLong("tokenCount"));
+        assertEquals(1, events.get(1).getInt("depth"));
+    }
+
+    @Test
+    void failedCallDoesNotLeaveEventBegun() throws IOException {
+        List<RecordedEvent> events = record(recording(), () -> {
+            assertThrows(NullPointerException.class, () -> printer.prettyPrint((String) null, new StringWriter()));
+            sleep(Duration.ofMillis(200));
+            printer.prettyPrint("[1]", new StringWriter());
+        });
+
+        assertEquals(1, events.size());
+        assertEquals(3, events.get(0).getLong("inputLength"));
+        assertTrue(events.get(0).getDuration().compareTo(Duration.ofMillis(200)) < 0);
+    }
+
+    @Test
+    void failedJobIsCommitted() throws IOException {
+        JsonPrettyPrinter shallowPrinter = new JsonPrettyPrinter(2, 1);
+
+        List<RecordedEvent> events = record(recording(), () -> {
+            assertThrows(IllegalArgumentException.class, () -> shallowPrinter.prettyPrint("[[1]]", new StringWriter()));
+            shallowPrinter.prettyPrint("[1]", new StringWriter());
+        });
+
+        assertEquals(2, events.size());
+        assertEquals(5, events.get(0).getLong("inputLength"));
+        assertEquals(3, events.get(1).getLong("inputLength"));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertPrettyPrintEvent(RecordedEvent event, int inputLength, int outputLength) {
+        assertEquals(JsonPrettyPrintEvent.NAME, event.getEventType().getName());
+        assertEquals(inputLength, event.getLong("inputLength"));
+        assertEquals(outputLength, event.getLong("outputLength"));
+        assertEquals(4, event.getInt("depth"));
+        assertEquals(17, event.getLong("tokenCount"));
+        assertTrue(event.getLong("writeTime") >= 0);
+    }
+
+    private static Recording recording() {
+        Recording recording = new Recording();
+        recording.enable(JsonPrettyPrintEvent.NAME);
+        recording.enable(JsonPrettyPrintChunkEvent.NAME);
+        return recording;
+    }
+
+    @Test
+    void printsOnRuntimeWithoutFlightRecorder() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "--limit-modules", "java.base", "-cp", System.getProperty("java.class.path"),
+                JsonPrettyPrinterCli.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        try (OutputStream input = process.getOutputStream()) {
+            input.write(JSON.getBytes());
+        }
+        String output = new String(process.getInputStream().readAllBytes());
+
+        assertEquals(0, process.waitFor(), output);
+        assertEquals(prettyPrint(JSON) + System.lineSeparator(), output);
+    }
+
+    private String prettyPrint(String json) {
+        StringWriter writer = new StringWriter();
+        printer.prettyPrint(json, writer);
+        return writer.toString();
+    }
+
+    private List<RecordedEvent> record(Recording recording, Runnable action) throws IOException {
+        try (recording) {
+            recording.start();
+            action.run();
+            recording.stop();
+            Path file = directory.resolve("recording.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("nemethi.jsonprettyprinter."))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonPrettyPrinterCliTest {
+
+    @TempDir
+    Path directory;
+
+    private ByteArrayOutputStream stdout;
+    private ByteArrayOutputStream stderr;
+
+    @BeforeEach
+    void setUp() {
+        stdout = new ByteArrayOutputStream();
+        stderr = new ByteArrayOutputStream();
+    }
+
+    @Test
+    void printsStandardInput() {
+        int status = run("{\"key\":[1,2]}");
+
+        assertEquals(0, status);
+        assertEquals("{\n  \"key\": [\n    1,\n    2\n  ]\n}\n", output());
+    }
+
+    @Test
+    void usesSpecifiedIndentAmount() {
+        int status = run("{\"key\":1}", "--indent", "4");
+
+        assertEquals(0, status);
+        assertEquals("{\n    \"key\": 1\n}\n", output());
+    }
+
+    @Test
+    void highlightsOutput() {
+        int status = run("{\"key\":null}", "--highlight", "ansi");
+
+        assertEquals(0, status);
+        assertEquals("{\n  \u001B[1;34m\"key\"\u001B[0m: \u001B[35mnull\u001B[0m\n}\n", output());
+    }
+
+    @Test
+    void unknownHighlightingMode() {
+        int status = run("", "--highlight", "rainbow");
+
+        assertEquals(2, status);
+        assertTrue(stderr.toString(UTF_8).contains("--highlight requires one of none, ansi or html: rainbow"));
+    }
+
+    @Test
+    void escapesNonAsciiCharacters() {
+        int status = run("[\"\u00e9\"]", "--unicode", "escape");
+
+        assertEquals(0, status);
+        assertEquals("[\n  \"\\u00e9\"\n]\n", output());
+    }
+
+    @Test
+    void unknownEscapingMode() {
+        int status = run("", "--unicode", "rot13");
+
+        assertEquals(2, status);
+        assertTrue(stderr.toString(UTF_8).contains("--unicode requires one of none, unescape or escape: rot13"));
+    }
+
+    @Test
+    void normalizesNumbers() {
+        int status = run("[1.0E+2]", "--numbers", "plain");
+
+        assertEquals(0, status);
+        assertEquals("[\n  100\n]\n", output());
+    }
+
+    @Test
+    void printsMultipleFilesInOrder() throws IOException {
+        Path first = file("first.json", "[1]");
+        Path second = gzipFile("second.json.gz", "{\"key\":\"value\"}");
+
+        int status = run("", first.toString(), second.toString());
+
+        assertEquals(0, status);
+        assertEquals("[\n  1\n]\n{\n  \"key\": \"value\"\n}\n", output());
+    }
+
+    @Test
+    void printsMultipleFilesInParallelInOrder() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        String[] args = new String[21];
+        args[0] = "--parallel";
+        for (int i = 1; i < args.length; i++) {
+            args[i] = file("file" + i + ".json", "[" + i + "]").toString();
+            expected.append("[\n  ").append(i).append("\n]\n");
+        }
+
+        int status = run("", args);
+
+        assertEquals(0, status);
+        assertEquals(expected.toString(), output());
+    }
+
+    @Test
+    void reportsMissingFilesInParallelAndContinues() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        String[] args = new String[21];
+        args[0] = "--parallel";
+        for (int i = 1; i < args.length; i++) {
+            if (i % 3 == 0) {
+                args[i] = directory.resolve("missing" + i + ".json").toString();
+            } else {
+                args[i] = file("file" + i + ".json", "[" + i + "]").toString();
+                expected.append("[\n  ").append(i).append("\n]\n");
+            }
+        }
+
+        int status = run("", args);
+
+        assertEquals(1, status);
+        assertEquals(expected.toString(), output());
+        for (int i = 3; i < args.length; i += 3) {
+            assertTrue(stderr.toString(UTF_8).contains("missing" + i + ".json: no such file"));
+        }
+    }
+
+    @Test
+    void reportsMissingFileAndContinues() throws IOException {
+        Path existing = file("existing.json", "[1]");
+
+        int status = run("", directory.resolve("missing.json").toString(), existing.toString());
+
+        assertEquals(1, status);
+        assertEquals("[\n  1\n]\n", output());
+        assertTrue(stderr.toString(UTF_8).contains("missing.json: no such file"));
+    }
+
+    @Test
+    void reportsTooDeeplyNestedJson() {
+        int status = run("[[[1]]]", "--max-depth", "2");
+
+        assertEquals(1, status);
+        assertTrue(stderr.toString(UTF_8).contains("json exceeds the maximum depth of 2"));
+    }
+
+    @Test
+    void invalidIndentAmount() {
+        int status = run("", "--indent", "11");
+
+        assertEquals(2, status);
+        assertTrue(stderr.toString(UTF_8).contains("indentAmount must be between 0 and 10 inclusive"));
+    }
+
+    @Test
+    void missingOptionValue() {
+        int status = run("", "--indent");
+
+        assertEquals(2, status);
+        assertTrue(stderr.toString(UTF_8).contains("--indent requires a value"));
+    }
+
+    @Test
+    void unknownOption() {
+        int status = run("", "--colour");
+
+        assertEquals(2, status);
+        assertTrue(stderr.toString(UTF_8).contains("unknown option: --colour"));
+    }
+
+    @Test
+    void help() {
+        int status = run("", "--help");
+
+        assertEquals(0, status);
+        assertTrue(output().startsWith("Usage: jpp"));
+    }
+
+    private int run(String stdin, String... args) {
+        JsonPrettyPrinterCli cli = new JsonPrettyPrinterCli(new ByteArrayInputStream(stdin.getBytes(UTF_8)),
+                new PrintStream(stdout, true, UTF_8), new PrintStream(stderr, true, UTF_8));
+        return cli.run(args);
+    }
+
+    private Path file(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    private Path gzipFile(String name, String content) throws IOException {
+        Path path = directory.resolve(name);
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(path))) {
+            output.write(content.getBytes(UTF_8));
+        }
+        return path;
+    }
+
+    private String output() {
+        return stdout.toString(UTF_8).replaceAll("\\r\\n?", "\n");
+    }
+}
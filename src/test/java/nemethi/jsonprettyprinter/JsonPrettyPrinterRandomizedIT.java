@@ -0,0 +1,457 @@
+package nemethi.jsonprettyprinter;
+
+import nemethi.jsonprettyprinter.RandomJsonGenerator.Document;
+import nemethi.jsonprettyprinter.RandomJsonGenerator.Shape;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks every pretty-printing path against the reference {@link JsonPrettyPrinter#prettyPrint(String, java.io.Writer)}
+ * output on randomly generated documents, and the reference output against the expected form from the generator.
+ * <p>
+ * Once the documents have been checked, which warms up every path, the throughput of every path is measured
+ * per shape with a reused pretty-printer. The documents, up to 500 of them, are pretty-printed in ten passes,
+ * each of which times the paths one after the other.
+ * Since absolute throughput depends on the machine, every path is gated on its throughput relative to
+ * the reference path, measured in the same pass. The median ratio of the passes counts, so a pass disturbed
+ * by the machine does not. The test fails if it drops below the baseline ratio of the shape and path
+ * in {@code throughput-baseline.properties} by more than the allowed ratio.
+ * The measured ratios are recorded in {@code target/throughput-ratios.properties}, in the format of the baseline,
+ * so the baseline can be updated by copying it.
+ * <p>
+ * A regression shared by every path, e.g. in the tokenizer, does not change the ratios.
+ * To catch those, the absolute throughputs of the fastest passes, recorded in {@code target/throughput.properties},
+ * can also be gated on a machine with stable performance, by passing a file recorded there earlier
+ * as {@code jpp.random.absoluteBaseline}.
+ * <p>
+ * The harness can be tuned with system properties:
+ * <ul>
+ *     <li>{@code jpp.random.documents}: the number of documents per shape (default: 500),</li>
+ *     <li>{@code jpp.random.seed}: the seed of the generator (default: random, reported on failure),</li>
+ *     <li>{@code jpp.random.maxDrop}: the allowed drop of throughput relative to the baseline (default: 0.35),</li>
+ *     <li>{@code jpp.random.baseline}: the path of a baseline file of ratios to use instead of the checked-in one,</li>
+ *     <li>{@code jpp.random.absoluteBaseline}: the path of a baseline file of absolute throughputs
+ *     to gate on as well (default: none).</li>
+ * </ul>
+ */
+@DisplayName("Tests using randomly generated JSON documents")
+class JsonPrettyPrinterRandomizedIT {
+
+    private static final int DOCUMENTS = Integer.getInteger("jpp.random.documents", 500);
+    private static final long SEED = Long.getLong("jpp.random.seed", new Random().nextLong());
+    private static final double MAX_DROP = Double.parseDouble(System.getProperty("jpp.random.maxDrop", "0.35"));
+    private static final String BASELINE = System.getProperty("jpp.random.baseline");
+    private static final String ABSOLUTE_BASELINE = System.getProperty("jpp.random.absoluteBaseline");
+    private static final Path RECORD = Path.of("target", "throughput.properties");
+    private static final Path RATIO_RECORD = Path.of("target", "throughput-ratios.properties");
+    private static final int INDENT_AMOUNT = 2;
+    private static final int MAX_TIMED_DOCUMENTS = 500;
+    private static final int TIMED_PASSES = 10;
+    private static final int TIMED_CHUNK_SIZE = 8192;
+    private static final Map<Shape, Map<PrintingPath, Double>> THROUGHPUTS = new EnumMap<>(Shape.class);
+    private static final Map<Shape, Map<PrintingPath, Double>> RATIOS = new EnumMap<>(Shape.class);
+
+    private final JsonPrettyPrinter referencePrinter = new JsonPrettyPrinter(INDENT_AMOUNT);
+    private final StringWriter referenceWriter = new StringWriter();
+    private final JsonPrettyPrinter reusedPrinter = new JsonPrettyPrinter(INDENT_AMOUNT);
+    private final StringWriter timedWriter = new StringWriter();
+    private final ByteBuffer timedBuffer = ByteBuffer.allocateDirect(TIMED_CHUNK_SIZE);
+    private final WritableByteChannel timedChannel = Channels.newChannel(OutputStream.nullOutputStream());
+    private final Random chunkSizes = new Random(SEED);
+
+    /**
+     * The timed pretty-printing paths. Each one prints to a reused or discarding destination.
+     */
+    private enum PrintingPath {
+        REFERENCE,
+        STRING,
+        BYTES,
+        READER,
+        BYTE_BUFFER,
+        CHANNEL,
+        CODEC,
+        PUBLISHER
+    }
+
+    @ParameterizedTest
+    @EnumSource(Shape.class)
+    void allPathsMatchReference(Shape shape) throws IOException {
+        RandomJsonGenerator generator = new RandomJsonGenerator(SEED + shape.ordinal(), shape, INDENT_AMOUNT);
+        int documents = shape == Shape.HUGE_STRINGS ? Math.max(1, DOCUMENTS / 10) : DOCUMENTS;
+        List<String> timedDocuments = new ArrayList<>();
+
+        for (int i = 0; i < documents; i++) {
+            Document document = generator.next();
+            String message = shape + " document #" + i + " with seed " + SEED;
+
+            String reference = reference(document.json);
+            assertEquals(document.expected, normalizeLineEndings(reference), message);
+            assertMatchesReference(document.json, reference, message);
+            if (timedDocuments.size() < MAX_TIMED_DOCUMENTS) {
+                timedDocuments.add(document.json);
+            }
+        }
+
+        Map<PrintingPath, Double> throughputs = new EnumMap<>(PrintingPath.class);
+        Map<PrintingPath, Double> ratios = new EnumMap<>(PrintingPath.class);
+        measureThroughputs(timedDocuments, throughputs, ratios);
+        THROUGHPUTS.put(shape, throughputs);
+        RATIOS.put(shape, ratios);
+        Properties ratioBaseline = load(BASELINE, "/throughput-baseline.properties");
+        Properties absoluteBaseline = ABSOLUTE_BASELINE == null ? null : load(ABSOLUTE_BASELINE, null);
+        List<String> failures = new ArrayList<>();
+        for (PrintingPath path : PrintingPath.values()) {
+            double throughput = throughputs.get(path);
+            if (path != PrintingPath.REFERENCE) {
+                double ratio = ratios.get(path);
+                double baseline = baseline(ratioBaseline, shape, path);
+                System.out.printf("%s %s: %.1f MB/s, %.2f of the reference path (baseline: %.2f)%n",
+                        shape, path, throughput, ratio, baseline);
+                check(failures, shape, path, "throughput ratio", ratio, baseline, "%.2f");
+            } else {
+                System.out.printf("%s %s: %d documents, %.1f MB/s%n", shape, path, documents, throughput);
+            }
+            if (absoluteBaseline != null) {
+                check(failures, shape, path, "throughput", throughput, baseline(absoluteBaseline, shape, path), "%.1f MB/s");
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join(System.lineSeparator(), failures));
+    }
+
+    private static void check(List<String> failures, Shape shape, PrintingPath path, String name,
+                              double value, double baseline, String format) {
+        double min = baseline * (1 - MAX_DROP);
+        if (value < min) {
+            failures.add(String.format("%s %s %s " + format + " is below " + format
+                            + ", the baseline of " + format + " minus %.0f%%",
+                    shape, path, name, value, min, baseline, MAX_DROP * 100));
+        }
+    }
+
+    /**
+     * Measures the throughput of every path on the specified documents in MB of input per second,
+     * and its ratio to the throughput of the reference path.
+     *
+     * @param throughputs receives the throughput of the fastest pass of each path
+     * @param ratios      receives the median ratio of the passes of each path, except the reference path
+     */
+    private void measureThroughputs(List<String> documents, Map<PrintingPath, Double> throughputs,
+                                    Map<PrintingPath, Double> ratios) throws IOException {
+        List<byte[]> encoded = new ArrayList<>();
+        long inputChars = 0;
+        for (String json : documents) {
+            encoded.add(json.getBytes(UTF_8));
+            inputChars += json.length();
+        }
+        Map<PrintingPath, double[]> passRatios = new EnumMap<>(PrintingPath.class);
+        for (int pass = 0; pass < TIMED_PASSES; pass++) {
+            double reference = 0;
+            for (PrintingPath path : PrintingPath.values()) {
+                long start = System.nanoTime();
+                for (int i = 0; i < documents.size(); i++) {
+                    print(path, documents.get(i), encoded.get(i));
+                }
+                double throughput = inputChars / 1e6 / ((System.nanoTime() - start) / 1e9);
+                throughputs.merge(path, throughput, Math::max);
+                if (path == PrintingPath.REFERENCE) {
+                    reference = throughput;
+                } else {
+                    passRatios.computeIfAbsent(path, p -> new double[TIMED_PASSES])[pass] = throughput / reference;
+                }
+            }
+        }
+        passRatios.forEach((path, values) -> {
+            Arrays.sort(values);
+            ratios.put(path, values[TIMED_PASSES / 2]);
+        });
+    }
+
+    private void print(PrintingPath path, String json, byte[] bytes) throws IOException {
+        switch (path) {
+            case REFERENCE:
+                reference(json);
+                break;
+            case STRING:
+                reusedPrinter.prettyPrintToString(json);
+                break;
+            case BYTES:
+                reusedPrinter.prettyPrintToBytes(json);
+                break;
+            case READER:
+                timedWriter.getBuffer().setLength(0);
+                reusedPrinter.prettyPrint(new StringReader(json), timedWriter);
+                break;
+            case BYTE_BUFFER:
+                ByteBuffer src = ByteBuffer.wrap(bytes);
+                while (reusedPrinter.prettyPrint(src, timedBuffer).isOverflow()) {
+                    timedBuffer.clear();
+                }
+                timedBuffer.clear();
+                break;
+            case CHANNEL:
+                reusedPrinter.prettyPrint(ByteBuffer.wrap(bytes), timedChannel);
+                break;
+            case CODEC:
+                reusedPrinter.prettyPrint(new ByteArrayInputStream(bytes), StandardStreamCodec.IDENTITY,
+                        OutputStream.nullOutputStream(), StandardStreamCodec.IDENTITY);
+                break;
+            case PUBLISHER:
+                reusedPrinter.prettyPrint(new ChunkedPublisher(bytes, () -> TIMED_CHUNK_SIZE))
+                        .subscribe(new DemandSubscriber(() -> Long.MAX_VALUE));
+                break;
+            default:
+                throw new AssertionError(path);
+        }
+    }
+
+    @AfterAll
+    static void recordThroughputs() throws IOException {
+        Properties throughputs = new Properties();
+        Properties ratios = new Properties();
+        THROUGHPUTS.forEach((shape, values) -> values.forEach((path, throughput) ->
+                throughputs.setProperty(shape + "." + path, String.format(Locale.ROOT, "%.1f", throughput))));
+        RATIOS.forEach((shape, values) -> values.forEach((path, ratio) ->
+                ratios.setProperty(shape + "." + path, String.format(Locale.ROOT, "%.2f", ratio))));
+        Files.createDirectories(RECORD.getParent());
+        try (OutputStream output = Files.newOutputStream(RECORD)) {
+            throughputs.store(output, "Throughput of every path in MB of input per second");
+        }
+        try (OutputStream output = Files.newOutputStream(RATIO_RECORD)) {
+            ratios.store(output, "Throughput of every path relative to the reference path");
+        }
+    }
+
+    private static Properties load(String file, String defaultResource) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = file == null
+                ? JsonPrettyPrinterRandomizedIT.class.getResourceAsStream(defaultResource)
+                : Files.newInputStream(Path.of(file))) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    private static double baseline(Properties properties, Shape shape, PrintingPath path) {
+        String baseline = properties.getProperty(shape + "." + path);
+        assertNotNull(baseline, "no baseline for " + shape + " " + path);
+        return Double.parseDouble(baseline);
+    }
+
+    private String reference(String json) {
+        referenceWriter.getBuffer().setLength(0);
+        referencePrinter.prettyPrint(json, referenceWriter);
+        return referenceWriter.toString();
+    }
+
+    private void assertMatchesReference(String json, String reference, String message) throws IOException {
+        byte[] referenceBytes = reference.getBytes(UTF_8);
+
+        StringWriter writer = new StringWriter();
+        reusedPrinter.prettyPrint(json, writer);
+        assertEquals(reference, writer.toString(), "String path, " + message);
+
+        assertEquals(reference, reusedPrinter.prettyPrintToString(json), "preallocated String path, " + message);
+        assertArrayEquals(referenceBytes, reusedPrinter.prettyPrintToBytes(json), "preallocated byte path, " + message);
+
+        writer = new StringWriter();
+        reusedPrinter.prettyPrint(new ChunkedReader(json), writer);
+        assertEquals(reference, writer.toString(), "Reader path, " + message);
+
+        assertArrayEquals(referenceBytes, printToByteBuffers(json), "ByteBuffer path, " + message);
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        reusedPrinter.prettyPrint(ByteBuffer.wrap(json.getBytes(UTF_8)), Channels.newChannel(channelOutput));
+        assertArrayEquals(referenceBytes, channelOutput.toByteArray(), "channel path, " + message);
+
+        ByteArrayOutputStream gzipOutput = new ByteArrayOutputStream();
+        reusedPrinter.prettyPrint(new ByteArrayInputStream(json.getBytes(UTF_8)), StandardStreamCodec.IDENTITY,
+                gzipOutput, StandardStreamCodec.GZIP);
+        assertArrayEquals(referenceBytes, gunzip(gzipOutput.toByteArray()), "codec path, " + message);
+
+        assertArrayEquals(referenceBytes, publish(json, message), "publisher path, " + message);
+    }
+
+    private byte[] printToByteBuffers(String json) {
+        ByteBuffer src = ByteBuffer.allocateDirect(json.length() * 4);
+        src.put(json.getBytes(UTF_8)).flip();
+        ByteBuffer dst = ByteBuffer.allocateDirect(4 + chunkSizes.nextInt(64));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CoderResult result;
+        do {
+            result = reusedPrinter.prettyPrint(src, dst);
+            dst.flip();
+            while (dst.hasRemaining()) {
+                output.write(dst.get());
+            }
+            dst.clear();
+        } while (result.isOverflow());
+        return output.toByteArray();
+    }
+
+    private byte[] publish(String json, String message) {
+        DemandSubscriber subscriber = new DemandSubscriber(() -> 1 + chunkSizes.nextInt(3));
+        reusedPrinter.prettyPrint(new ChunkedPublisher(json.getBytes(UTF_8), () -> 1 + chunkSizes.nextInt(64)))
+                .subscribe(subscriber);
+        if (subscriber.error != null) {
+            throw new AssertionError("publisher path failed, " + message, subscriber.error);
+        }
+        assertTrue(subscriber.completed, "publisher path did not complete, " + message);
+        return subscriber.output.toByteArray();
+    }
+
+    private byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static String normalizeLineEndings(String s) {
+        return s.replaceAll("\\r\\n?", "\n");
+    }
+
+    /**
+     * Publishes the bytes synchronously in chunks of the supplied sizes, so characters and tokens can span chunks.
+     */
+    private static final class ChunkedPublisher implements Flow.Publisher<ByteBuffer> {
+
+        private final byte[] bytes;
+        private final IntSupplier chunkSizes;
+
+        private ChunkedPublisher(byte[] bytes, IntSupplier chunkSizes) {
+            this.bytes = bytes;
+            this.chunkSizes = chunkSizes;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int position;
+                private boolean done;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && !done; i++) {
+                        if (position < bytes.length) {
+                            int length = Math.min(bytes.length - position, chunkSizes.getAsInt());
+                            ByteBuffer chunk = ByteBuffer.wrap(bytes, position, length);
+                            position += length;
+                            subscriber.onNext(chunk);
+                        } else {
+                            done = true;
+                            subscriber.onComplete();
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    done = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Collects the published bytes, and requests the supplied number of buffers
+     * whenever the previously requested ones have all been received.
+     */
+    private static final class DemandSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final LongSupplier demand;
+        private Flow.Subscription subscription;
+        private long outstanding;
+        private Throwable error;
+        private boolean completed;
+
+        private DemandSubscriber(LongSupplier demand) {
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            request();
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (--outstanding == 0) {
+                request();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private void request() {
+            outstanding = demand.getAsLong();
+            subscription.request(outstanding);
+        }
+    }
+
+    /**
+     * Returns the characters in chunks of random size, so tokens span chunk boundaries.
+     */
+    private final class ChunkedReader extends Reader {
+
+        private final StringReader reader;
+
+        private ChunkedReader(String s) {
+            reader = new StringReader(s);
+        }
+
+        @Override
+        public int read(char[] buffer, int off, int len) throws IOException {
+            return reader.read(buffer, off, Math.min(len, 1 + chunkSizes.nextInt(16)));
+        }
+
+        @Override
+        public void close() {
+            reader.close();
+        }
+    }
+}
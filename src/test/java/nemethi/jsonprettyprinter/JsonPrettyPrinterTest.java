@@ -4,15 +4,34 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JsonPrettyPrinterTest {
 
@@ -53,9 +72,89 @@ class JsonPrettyPrinterTest {
                 "indentAmount must be between 0 and 10 inclusive");
     }
 
+    @Test
+    void defaultMaxDepthIsThousand() {
+        assertEquals(1000, printer.getMaxDepth());
+    }
+
+    @Test
+    void maxDepthCanBeSpecified() {
+        final int maxDepth = 10;
+
+        printer = new JsonPrettyPrinter(2, maxDepth);
+
+        assertEquals(maxDepth, printer.getMaxDepth());
+    }
+
+    @Test
+    void maxDepthMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new JsonPrettyPrinter(2, 0),
+                "maxDepth must be positive");
+    }
+
+    @Test
+    void jsonCanNestUpToMaxDepth() {
+        printer = new JsonPrettyPrinter(2, 3);
+
+        printer.prettyPrint("[{\"key\":[1]}]", writer);
+
+        assertOutput("[\n  {\n    \"key\": [\n      1\n    ]\n  }\n]");
+    }
+
+    @Test
+    void jsonCannotNestDeeperThanMaxDepth() {
+        printer = new JsonPrettyPrinter(2, 3);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> printer.prettyPrint("[{\"key\":[[1]]}]", writer),
+                "json exceeds the maximum depth of 3");
+    }
+
+    @Test
+    void deeplyNestedJsonFailsFast() {
+        String json = "[".repeat(10_000_000) + "]".repeat(10_000_000);
+
+        assertThrows(IllegalArgumentException.class, () -> printer.prettyPrint(json, new Writer() {
+            @Override
+            public void write(char[] buffer, int off, int len) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }));
+    }
+
+    @Test
+    void deeplyNestedJsonFailsFastWithBoundedHeap() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx64m", "-cp", System.getProperty("java.class.path"), DeeplyNestedJson.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+
+        assertEquals(0, process.waitFor(), output);
+    }
+
+    @Test
+    void instanceIsReusableAfterExceedingMaxDepth() {
+        printer = new JsonPrettyPrinter(2, 1);
+        assertThrows(IllegalArgumentException.class, () -> printer.prettyPrint("[[1]]", new StringWriter()));
+
+        printer.prettyPrint("[1]", writer);
+
+        assertOutput("[\n  1\n]");
+    }
+
     @Test
     void nullJson() {
-        assertThrows(NullPointerException.class, () -> printer.prettyPrint(null, writer));
+        assertThrows(NullPointerException.class, () -> printer.prettyPrint((String) null, writer));
     }
 
     @Test
@@ -336,6 +435,59 @@ class JsonPrettyPrinterTest {
             assertEquals(expected, normalizeLineEndings(outputStream.toString()));
         }
 
+        @Test
+        void reusesInstanceForMultipleDocuments() {
+            printer.prettyPrint("[\"unfinished", writer);
+            writer = new StringWriter();
+
+            printer.prettyPrint(JSON, writer);
+
+            assertOutput("{\n  \"key\": {\n    \"key2\": \"value\"\n  }\n}");
+        }
+
+        @Test
+        void reusesInstanceForMultipleOutputStreams() {
+            String json = "[" + "\"árvíztűrő\",".repeat(2000) + "\"\uD83D\uDE00\"]";
+            StringWriter expected = new StringWriter();
+            printer.prettyPrint(json, expected);
+            ByteArrayOutputStream otherOutputStream = new ByteArrayOutputStream();
+
+            printer.prettyPrint(json, outputStream);
+            printer.prettyPrint(JSON, otherOutputStream);
+
+            assertArrayEquals(expected.toString().getBytes(), outputStream.toByteArray());
+            assertEquals("{\n  \"key\": {\n    \"key2\": \"value\"\n  }\n}",
+                    normalizeLineEndings(otherOutputStream.toString()));
+        }
+
+        @Test
+        void writerErrorIsRethrown() {
+            assertThrows(UncheckedIOException.class, () -> printer.prettyPrint(JSON, new Writer() {
+                @Override
+                public void write(char[] buffer, int off, int len) throws IOException {
+                    throw new IOException("broken writer");
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+            }));
+        }
+
+        @Test
+        void outputStreamErrorIsRethrown() {
+            assertThrows(UncheckedIOException.class, () -> printer.prettyPrint(JSON, new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("broken output stream");
+                }
+            }));
+        }
+
         @Test
         void usesSpecifiedIndentAmount() {
             final int indentAmount = 4;
@@ -388,6 +540,603 @@ class JsonPrettyPrinterTest {
         }
     }
 
+    @Nested
+    class ByteBuffers {
+        private static final String JSON = "{\"key\":[\"árvíztűrő\",\"\uD83D\uDE00\"]}";
+        private static final String EXPECTED = "{\n  \"key\": [\n    \"árvíztűrő\",\n    \"\uD83D\uDE00\"\n  ]\n}";
+
+        @Test
+        void nullSource() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrint(null, ByteBuffer.allocate(0)),
+                    "src cannot be null");
+        }
+
+        @Test
+        void nullDestination() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrint(ByteBuffer.allocate(0), (ByteBuffer) null),
+                    "dst cannot be null");
+        }
+
+        @Test
+        void nullChannel() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrint(ByteBuffer.allocate(0), (WritableByteChannel) null),
+                    "channel cannot be null");
+        }
+
+        @Test
+        void printsToDirectBuffer() {
+            ByteBuffer src = directBuffer(JSON);
+            ByteBuffer dst = ByteBuffer.allocateDirect(256);
+
+            CoderResult result = printer.prettyPrint(src, dst);
+
+            assertEquals(CoderResult.UNDERFLOW, result);
+            assertFalse(src.hasRemaining(), "assert src is consumed");
+            assertEquals(EXPECTED, normalizeLineEndings(decode(dst)));
+        }
+
+        @Test
+        void resumesAfterOverflow() {
+            ByteBuffer src = directBuffer(JSON);
+            ByteBuffer dst = ByteBuffer.allocateDirect(5);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            CoderResult result;
+            do {
+                result = printer.prettyPrint(src, dst);
+                dst.flip();
+                while (dst.hasRemaining()) {
+                    output.write(dst.get());
+                }
+                dst.clear();
+            } while (result.isOverflow());
+
+            assertEquals(EXPECTED, normalizeLineEndings(output.toString(UTF_8)));
+        }
+
+        @Test
+        void readsSourceOnlyAsOutputIsWritten() {
+            String json = "[" + (JSON + ",").repeat(1000) + JSON + "]";
+            StringWriter expected = new StringWriter();
+            printer.prettyPrint(json, expected);
+            ByteBuffer src = directBuffer(json);
+            ByteBuffer dst = ByteBuffer.allocateDirect(64);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            CoderResult result = printer.prettyPrint(src, dst);
+            assertEquals(CoderResult.OVERFLOW, result);
+            assertTrue(src.hasRemaining(), "assert src is not consumed at once");
+            while (result.isOverflow()) {
+                dst.flip();
+                while (dst.hasRemaining()) {
+                    output.write(dst.get());
+                }
+                dst.clear();
+                result = printer.prettyPrint(src, dst);
+            }
+            dst.flip();
+            while (dst.hasRemaining()) {
+                output.write(dst.get());
+            }
+
+            assertFalse(src.hasRemaining(), "assert src is consumed");
+            assertEquals(expected.toString(), output.toString(UTF_8));
+        }
+
+        @Test
+        void resumesInsideLongToken() {
+            String value = "\"" + "árvíztűrő \uD83D\uDE00 ".repeat(100) + "\"";
+            ByteBuffer dst = ByteBuffer.allocate(7);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteBuffer src = directBuffer("[" + value + "]");
+
+            CoderResult result;
+            do {
+                result = printer.prettyPrint(src, dst);
+                dst.flip();
+                while (dst.hasRemaining()) {
+                    output.write(dst.get());
+                }
+                dst.clear();
+            } while (result.isOverflow());
+
+            assertEquals("[\n  " + value + "\n]", normalizeLineEndings(output.toString(UTF_8)));
+        }
+
+        @Test
+        void failureResetsInstance() {
+            printer = new JsonPrettyPrinter(2, 1);
+            assertThrows(IllegalArgumentException.class,
+                    () -> printer.prettyPrint(directBuffer("[[1]]"), ByteBuffer.allocate(256)));
+            ByteBuffer dst = ByteBuffer.allocate(256);
+
+            CoderResult result = printer.prettyPrint(directBuffer("[1]"), dst);
+
+            assertEquals(CoderResult.UNDERFLOW, result);
+            assertEquals("[\n  1\n]", normalizeLineEndings(decode(dst)));
+        }
+
+        @Test
+        void resetDiscardsPendingOutput() {
+            ByteBuffer dst = ByteBuffer.allocate(5);
+            printer.prettyPrint(directBuffer(JSON), dst);
+
+            printer.reset();
+            dst = ByteBuffer.allocate(256);
+            CoderResult result = printer.prettyPrint(directBuffer("[1]"), dst);
+
+            assertEquals(CoderResult.UNDERFLOW, result);
+            assertEquals("[\n  1\n]", normalizeLineEndings(decode(dst)));
+        }
+
+        @Test
+        void printsToChannel() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            printer.prettyPrint(directBuffer(JSON), Channels.newChannel(output));
+
+            assertEquals(EXPECTED, normalizeLineEndings(output.toString(UTF_8)));
+        }
+
+        @Test
+        void printsLongJsonToChannel() {
+            String json = "[" + (JSON + ",").repeat(1000) + JSON + "]";
+            StringWriter expected = new StringWriter();
+            printer.prettyPrint(json, expected);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            printer.prettyPrint(directBuffer(json), Channels.newChannel(output));
+
+            assertEquals(expected.toString(), output.toString(UTF_8));
+        }
+
+        private ByteBuffer directBuffer(String s) {
+            byte[] bytes = s.getBytes(UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer;
+        }
+
+        private String decode(ByteBuffer buffer) {
+            buffer.flip();
+            return UTF_8.decode(buffer).toString();
+        }
+    }
+
+    @Nested
+    class Streams {
+        private static final String JSON = "{\"key\":[\"árvíztűrő\",\"value1,value2\",\"\\\"quoted\\\"\"]}";
+        private static final String EXPECTED = "{\n  \"key\": [\n    \"árvíztűrő\",\n    \"value1,value2\",\n    \"\\\"quoted\\\"\"\n  ]\n}";
+
+        @Test
+        void nullReader() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrint((Reader) null, writer),
+                    "reader cannot be null");
+        }
+
+        @Test
+        void nullCodec() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrint(InputStream.nullInputStream(), null,
+                            OutputStream.nullOutputStream(), StandardStreamCodec.IDENTITY),
+                    "inputCodec cannot be null");
+        }
+
+        @Test
+        void printsFromReader() {
+            printer.prettyPrint(new StringReader(JSON), writer);
+
+            assertOutput(EXPECTED);
+        }
+
+        @Test
+        void printsTheSameFromReaderAndString() {
+            String json = "[" + (JSON + ",").repeat(1000) + JSON + "]";
+            StringWriter expected = new StringWriter();
+            printer.prettyPrint(json, expected);
+
+            printer.prettyPrint(new StringReader(json), writer);
+
+            assertEquals(expected.toString(), writer.toString());
+        }
+
+        @Test
+        void readerErrorIsRethrown() {
+            Reader reader = new Reader() {
+                @Override
+                public int read(char[] buffer, int off, int len) throws IOException {
+                    throw new IOException("read error");
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+
+            assertThrows(UncheckedIOException.class, () -> printer.prettyPrint(reader, writer));
+        }
+
+        @Test
+        void printsFromGzipToGzip() throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            printer.prettyPrint(new ByteArrayInputStream(gzip(JSON)), StandardStreamCodec.GZIP,
+                    output, StandardStreamCodec.GZIP);
+
+            assertEquals(EXPECTED, normalizeLineEndings(gunzip(output.toByteArray())));
+        }
+
+        @Test
+        void printsFromDeflateToIdentity() throws IOException {
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+            try (OutputStream encoded = StandardStreamCodec.DEFLATE.encode(deflated)) {
+                encoded.write(JSON.getBytes(UTF_8));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            printer.prettyPrint(new ByteArrayInputStream(deflated.toByteArray()), StandardStreamCodec.DEFLATE,
+                    output, StandardStreamCodec.IDENTITY);
+
+            assertEquals(EXPECTED, normalizeLineEndings(output.toString(UTF_8)));
+        }
+
+        @Test
+        void doesNotCloseStreams() throws IOException {
+            AtomicBoolean inputClosed = new AtomicBoolean(false);
+            AtomicBoolean outputClosed = new AtomicBoolean(false);
+            InputStream input = new ByteArrayInputStream(gzip(JSON)) {
+                @Override
+                public void close() {
+                    inputClosed.set(true);
+                }
+            };
+            OutputStream output = new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    outputClosed.set(true);
+                }
+            };
+
+            printer.prettyPrint(input, StandardStreamCodec.GZIP, output, StandardStreamCodec.GZIP);
+
+            assertFalse(inputClosed.get(), "assert inputStream is not closed");
+            assertFalse(outputClosed.get(), "assert outputStream is not closed");
+        }
+
+        private byte[] gzip(String s) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (OutputStream gzip = new GZIPOutputStream(output)) {
+                gzip.write(s.getBytes(UTF_8));
+            }
+            return output.toByteArray();
+        }
+
+        private String gunzip(byte[] bytes) throws IOException {
+            try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                return new String(gzip.readAllBytes(), UTF_8);
+            }
+        }
+    }
+
+    @Nested
+    class Documents {
+        private static final String DOCUMENTS = "{\"key\":[1]}[]\n[{},\"}{\"] {\"a\":{\"b\":null}}";
+
+        @Test
+        void nullSeparator() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrintDocuments(new StringReader("{}"), writer, null),
+                    "separator cannot be null");
+        }
+
+        @Test
+        void nullConsumer() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrintDocuments(new StringReader("{}"), (Consumer<String>) null),
+                    "consumer cannot be null");
+        }
+
+        @Test
+        void separatesDocuments() {
+            printer.prettyPrintDocuments(new StringReader(DOCUMENTS), writer, "\n---\n");
+
+            assertOutput("{\n  \"key\": [\n    1\n  ]\n}\n---\n[]\n---\n[\n  {},\n  \"}{\"\n]\n---\n"
+                    + "{\n  \"a\": {\n    \"b\": null\n  }\n}");
+        }
+
+        @Test
+        void singleDocumentHasNoSeparator() {
+            printer.prettyPrintDocuments(new StringReader("[1]"), writer, "\n");
+
+            assertOutput("[\n  1\n]");
+        }
+
+        @Test
+        void passesDocumentsToConsumer() {
+            List<String> documents = new ArrayList<>();
+
+            printer.prettyPrintDocuments(new StringReader(DOCUMENTS), document -> documents.add(normalizeLineEndings(document)));
+
+            assertEquals(List.of("{\n  \"key\": [\n    1\n  ]\n}", "[]", "[\n  {},\n  \"}{\"\n]",
+                    "{\n  \"a\": {\n    \"b\": null\n  }\n}"), documents);
+        }
+
+        @Test
+        void passesEachDocumentAsSoonAsItEnds() {
+            List<String> documents = new ArrayList<>();
+            Reader reader = new StringReader("[1][2]") {
+                private int readSoFar;
+
+                @Override
+                public int read(char[] buffer, int off, int len) throws IOException {
+                    int read = super.read(buffer, off, Math.min(len, 3));
+                    if (read == -1) {
+                        return -1;
+                    }
+                    assertEquals(documents.size() * 3, readSoFar, "assert documents are passed while reading");
+                    readSoFar += read;
+                    return read;
+                }
+            };
+
+            printer.prettyPrintDocuments(reader, documents::add);
+
+            assertEquals(2, documents.size());
+        }
+
+        @Test
+        void printsSingleDocumentAfterDocuments() {
+            printer.prettyPrintDocuments(new StringReader("[1][2]"), writer, "\n");
+            writer = new StringWriter();
+
+            printer.prettyPrint("[1][2]", writer);
+
+            assertOutput("[\n  1\n][\n  2\n]");
+        }
+    }
+
+    @Nested
+    class Highlighting {
+        private static final String JSON = "{\"key\":[\"a<b>&c\",-1.5,true,null,{\"inner\":\"value\",\"key2\":{}}]}";
+
+        @Test
+        void noHighlightingByDefault() {
+            assertEquals(SyntaxHighlighting.NONE, printer.getSyntaxHighlighting());
+        }
+
+        @Test
+        void nullHighlighting() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.setSyntaxHighlighting(null),
+                    "syntaxHighlighting cannot be null");
+        }
+
+        @Test
+        void ansiHighlighting() {
+            printer.setSyntaxHighlighting(SyntaxHighlighting.ANSI);
+
+            printer.prettyPrint(JSON, writer);
+
+            assertOutput("{\n" +
+                    "  " + ansi("1;34", "\"key\"") + ": [\n" +
+                    "    " + ansi("32", "\"a<b>&c\"") + ",\n" +
+                    "    " + ansi("36", "-1.5") + ",\n" +
+                    "    " + ansi("35", "true") + ",\n" +
+                    "    " + ansi("35", "null") + ",\n" +
+                    "    {\n" +
+                    "      " + ansi("1;34", "\"inner\"") + ": " + ansi("32", "\"value\"") + ",\n" +
+                    "      " + ansi("1;34", "\"key2\"") + ": {}\n" +
+                    "    }\n" +
+                    "  ]\n" +
+                    "}");
+        }
+
+        @Test
+        void htmlHighlighting() {
+            printer.setSyntaxHighlighting(SyntaxHighlighting.HTML);
+
+            printer.prettyPrint("{\"k&y\":[\"a<b>\\\"c\",1]}", writer);
+
+            assertOutput(html("structural", "{") + "\n" +
+                    "  " + html("key", "\"k&amp;y\"") + html("structural", ":") + " " + html("structural", "[") + "\n" +
+                    "    " + html("string", "\"a&lt;b&gt;\\\"c\"") + html("structural", ",") + "\n" +
+                    "    " + html("number", "1") + "\n" +
+                    "  " + html("structural", "]") + "\n" +
+                    html("structural", "}"));
+        }
+
+        @Test
+        void stringsInArraysAreNotKeys() {
+            printer.setSyntaxHighlighting(SyntaxHighlighting.ANSI);
+
+            printer.prettyPrint("[\"a\",\"b\"]", writer);
+
+            assertOutput("[\n  " + ansi("32", "\"a\"") + ",\n  " + ansi("32", "\"b\"") + "\n]");
+        }
+
+        private String ansi(String style, String token) {
+            return "\u001B[" + style + "m" + token + "\u001B[0m";
+        }
+
+        private String html(String type, String token) {
+            return "<span class=\"json-" + type + "\">" + token + "</span>";
+        }
+    }
+
+    @Nested
+    class Escaping {
+
+        @Test
+        void noEscapingByDefault() {
+            assertEquals(UnicodeEscaping.NONE, printer.getUnicodeEscaping());
+        }
+
+        @Test
+        void nullEscaping() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.setUnicodeEscaping(null),
+                    "unicodeEscaping cannot be null");
+        }
+
+        @Test
+        void unescapesKeysAndValues() {
+            printer.setUnicodeEscaping(UnicodeEscaping.UNESCAPE);
+
+            printer.prettyPrint("{\"k\\u00e9y\":[\"\\ud83d\\ude00\",\"\\u0022\",1]}", writer);
+
+            assertOutput("{\n  \"k\u00e9y\": [\n    \"\uD83D\uDE00\",\n    \"\\u0022\",\n    1\n  ]\n}");
+        }
+
+        @Test
+        void escapesKeysAndValues() {
+            printer.setUnicodeEscaping(UnicodeEscaping.ESCAPE);
+
+            printer.prettyPrint("{\"k\u00e9y\":\"\uD83D\uDE00\"}", writer);
+
+            assertOutput("{\n  \"k\\u00e9y\": \"\\ud83d\\ude00\"\n}");
+        }
+
+        @Test
+        void escapesHighlightedStrings() {
+            printer.setUnicodeEscaping(UnicodeEscaping.ESCAPE);
+            printer.setSyntaxHighlighting(SyntaxHighlighting.ANSI);
+
+            printer.prettyPrint("[\"\u00e9\"]", writer);
+
+            assertOutput("[\n  \u001B[32m\"\\u00e9\"\u001B[0m\n]");
+        }
+
+        @Test
+        void escapesWhileStreaming() {
+            printer.setUnicodeEscaping(UnicodeEscaping.ESCAPE);
+
+            printer.prettyPrint(new StringReader("[\"\u00e9\"]"), writer);
+
+            assertOutput("[\n  \"\\u00e9\"\n]");
+        }
+    }
+
+    @Nested
+    class Numbers {
+
+        @Test
+        void noNormalizationByDefault() {
+            assertEquals(NumberNormalization.NONE, printer.getNumberNormalization());
+        }
+
+        @Test
+        void nullNormalization() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.setNumberNormalization(null),
+                    "numberNormalization cannot be null");
+        }
+
+        @Test
+        void canonicalNumbers() {
+            printer.setNumberNormalization(NumberNormalization.CANONICAL);
+
+            printer.prettyPrint("{\"a\":[1.50E+02,12345678901234567890,-0.0,\"1.0\"]}", writer);
+
+            assertOutput("{\n  \"a\": [\n    1.5E2,\n    12345678901234567890,\n    -0,\n    \"1.0\"\n  ]\n}");
+        }
+
+        @Test
+        void plainNumbers() {
+            printer.setNumberNormalization(NumberNormalization.PLAIN);
+
+            printer.prettyPrint(new StringReader("[1.0E2,15e-4,1e100]"), writer);
+
+            assertOutput("[\n  100,\n  0.0015,\n  1e100\n]");
+        }
+
+        @Test
+        void highlightsNormalizedNumbers() {
+            printer.setNumberNormalization(NumberNormalization.PLAIN);
+            printer.setSyntaxHighlighting(SyntaxHighlighting.ANSI);
+
+            printer.prettyPrint("[1.0E2]", writer);
+
+            assertOutput("[\n  \u001B[36m100\u001B[0m\n]");
+        }
+    }
+
+    @Nested
+    class Preallocation {
+        private static final String JSON = "{\"key\":[\"árvíztűrő\",\"\uD83D\uDE00\",\"\uD83D\",1.50e+2,[],{},"
+                + "[{\"a\":[[1],{\"b\":null}]}],\"a:b,c\"],\"empty\":{}}";
+
+        @Test
+        void nullJson() {
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrintToString(null),
+                    "json cannot be null");
+            assertThrows(NullPointerException.class,
+                    () -> printer.prettyPrintToBytes(null),
+                    "json cannot be null");
+        }
+
+        @Test
+        void printsTheSameAsToWriter() {
+            printer.prettyPrint(JSON, writer);
+
+            assertEquals(writer.toString(), printer.prettyPrintToString(JSON));
+            assertArrayEquals(writer.toString().getBytes(UTF_8), printer.prettyPrintToBytes(JSON));
+        }
+
+        @Test
+        void printsTheSameAsToWriterWithoutIndentation() {
+            printer = new JsonPrettyPrinter(0);
+            printer.prettyPrint(JSON, writer);
+
+            assertEquals(writer.toString(), printer.prettyPrintToString(JSON));
+            assertArrayEquals(writer.toString().getBytes(UTF_8), printer.prettyPrintToBytes(JSON));
+        }
+
+        @Test
+        void printsTheSameAsToWriterWhenTokensAreTransformed() {
+            printer.setSyntaxHighlighting(SyntaxHighlighting.HTML);
+            printer.setUnicodeEscaping(UnicodeEscaping.ESCAPE);
+            printer.setNumberNormalization(NumberNormalization.PLAIN);
+            printer.prettyPrint(JSON, writer);
+
+            assertEquals(writer.toString(), printer.prettyPrintToString(JSON));
+            assertArrayEquals(writer.toString().getBytes(UTF_8), printer.prettyPrintToBytes(JSON));
+        }
+
+        @Test
+        void failsOnTooDeepJson() {
+            printer = new JsonPrettyPrinter(2, 2);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> printer.prettyPrintToString("[[[1]]]"),
+                    "json exceeds the maximum depth of 2");
+            assertThrows(IllegalArgumentException.class,
+                    () -> printer.prettyPrintToBytes("[[[1]]]"),
+                    "json exceeds the maximum depth of 2");
+            assertEquals("[\n  [\n    1\n  ]\n]", normalizeLineEndings(printer.prettyPrintToString("[[1]]")));
+        }
+    }
+
+    /**
+     * Pretty-prints a JSON string of 10 million nested arrays, which fits into the heap,
+     * but does not if it is buffered as a whole. Run in a separate JVM with a bounded heap.
+     */
+    static class DeeplyNestedJson {
+        public static void main(String[] args) {
+            String json = "[".repeat(10_000_000);
+            try {
+                new JsonPrettyPrinter().prettyPrint(json, Writer.nullWriter());
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            throw new AssertionError("json did not exceed the maximum depth");
+        }
+    }
+
     private void assertOutput(String expected) {
         String actual = normalizeLineEndings(writer.toString());
         assertEquals(expected, actual);
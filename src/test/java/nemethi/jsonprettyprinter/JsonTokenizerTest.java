@@ -36,6 +36,79 @@ class JsonTokenizerTest {
         assertEquals(emptyList(), getTokens());
     }
 
+    @Test
+    void resetWithNullJsonString() {
+        tokenizer = new JsonTokenizer("");
+
+        assertThrows(NullPointerException.class,
+                () -> tokenizer.reset(null),
+                "json cannot be null");
+    }
+
+    @Test
+    void resetDiscardsPreviousTokens() {
+        tokenizer = new JsonTokenizer("{\"key\":\"value\"}");
+
+        tokenizer.reset("[1,2]");
+
+        assertEquals(List.of("[", "1", ",", "2", "]"), getTokens());
+    }
+
+    @Test
+    void resetDiscardsUnfinishedString() {
+        tokenizer = new JsonTokenizer("[\"unfinished\\");
+
+        tokenizer.reset("[\"a\",\"b\"]");
+
+        assertEquals(List.of("[", "\"a\"", ",", "\"b\"", "]"), getTokens());
+    }
+
+    @Test
+    void resetAfterOversizedJsonString() {
+        String longString = "\"" + "a".repeat(100_000) + "\"";
+        tokenizer = new JsonTokenizer("[" + "1,".repeat(10_000) + longString + "]");
+
+        tokenizer.reset("[" + longString + "]");
+
+        assertEquals(List.of("[", longString, "]"), getTokens());
+    }
+
+    @Test
+    void maxDepthIsCheckedWhileTokenizing() {
+        tokenizer = new JsonTokenizer("");
+        tokenizer.setMaxDepth(3);
+
+        tokenizer.reset("[{\"[[[\":[]},[]]");
+        assertEquals(11, getTokens().size());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> tokenizer.reset("[[[" + "[".repeat(1_000_000)),
+                "json exceeds the maximum depth of 3");
+        assertEquals(List.of("[", "[", "["), getTokens());
+    }
+
+    @Test
+    void resetAfterExceedingMaxDepth() {
+        tokenizer = new JsonTokenizer("");
+        tokenizer.setMaxDepth(1);
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.reset("[[1]]"));
+
+        tokenizer.reset("[1]");
+
+        assertEquals(List.of("[", "1", "]"), getTokens());
+    }
+
+    @Test
+    void endTokenBuffersTrailingValue() {
+        tokenizer = new JsonTokenizer("\"key\": true ");
+        assertEquals(List.of("\"key\"", ":"), getTokens());
+
+        tokenizer.reset("\"key\": true ");
+        tokenizer.endToken();
+
+        assertEquals(List.of("\"key\"", ":", "true"), getTokens());
+    }
+
     @ParameterizedTest(name = "{index} - {2}")
     @MethodSource("arrayOfValuesArguments")
     void jsonArrays(String json, List<String> expected, String testName) {
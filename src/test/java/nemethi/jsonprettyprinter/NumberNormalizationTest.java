@@ -0,0 +1,83 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NumberNormalizationTest {
+
+    @Test
+    void noneKeepsNumbers() {
+        assertEquals("1.50E+02", normalize(NumberNormalization.NONE, "1.50E+02"));
+    }
+
+    @Nested
+    class Canonical {
+
+        @ParameterizedTest
+        @CsvSource({
+                "1.50E+02, 1.5E2",
+                "1.0e-05, 1e-5",
+                "2.0e0, 2",
+                "2.000, 2",
+                "-2.50, -2.5",
+                "1E+000, 1",
+                "0.0, 0",
+                "-0.0e5, -0",
+                "0e10, 0",
+                "1.0E2, 1E2",
+                "10.010e-010, 10.01e-10",
+                "1e400, 1e400",
+        })
+        void removesRedundantForms(String number, String expected) {
+            assertEquals(expected, normalize(NumberNormalization.CANONICAL, number));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"0", "-1", "12345678901234567890123456789", "1.5", "1e5", "-1.25E-3"})
+        void keepsCanonicalNumbers(String number) {
+            assertEquals(number, normalize(NumberNormalization.CANONICAL, number));
+        }
+    }
+
+    @Nested
+    class Plain {
+
+        @ParameterizedTest
+        @CsvSource({
+                "1.0E2, 100",
+                "15e-4, 0.0015",
+                "0.5e-2, 0.005",
+                "1.5e1, 15",
+                "1.25e1, 12.5",
+                "100e-2, 1",
+                "-1.5E+3, -1500",
+                "1.50, 1.5",
+                "0.0e5, 0",
+                "1e20, 100000000000000000000",
+                "1e21, 1e21",
+                "1e-21, 0.000000000000000000001",
+                "1e-22, 1e-22",
+                "1.5e1000000000, 1.5e1000000000",
+        })
+        void expandsExponents(String number, String expected) {
+            assertEquals(expected, normalize(NumberNormalization.PLAIN, number));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"12345678901234567890123456789", "-0.001", "3.14"})
+        void keepsPlainNumbers(String number) {
+            assertEquals(number, normalize(NumberNormalization.PLAIN, number));
+        }
+    }
+
+    private String normalize(NumberNormalization normalization, String number) {
+        char[] buffer = new char[NumberNormalization.maxLength(number)];
+        int length = normalization.normalize(number, buffer);
+        return length < 0 ? number : new String(buffer, 0, length);
+    }
+}
@@ -0,0 +1,281 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrettyPrintingPublisherTest {
+
+    private static final String JSON = "{\"key\":[\"v\u00e9lue \uD83D\uDE00\",1.5,true,null,{\"inner\":{}}]}";
+
+    private JsonPrettyPrinter printer;
+
+    @BeforeEach
+    void setUp() {
+        printer = new JsonPrettyPrinter();
+    }
+
+    @Test
+    void nullInput() {
+        assertThrows(NullPointerException.class,
+                () -> printer.prettyPrint((Flow.Publisher<ByteBuffer>) null),
+                "input cannot be null");
+    }
+
+    @Test
+    void printsChunksSplitInsideCharacters() {
+        byte[] json = JSON.getBytes(UTF_8);
+        for (int chunkSize = 1; chunkSize <= json.length; chunkSize++) {
+            ChunkPublisher input = new ChunkPublisher(json, chunkSize);
+            RecordingSubscriber output = new RecordingSubscriber();
+
+            printer.prettyPrint(input).subscribe(output);
+            output.subscription.request(Long.MAX_VALUE);
+
+            assertTrue(output.completed);
+            assertEquals(reference(JSON), output.text(), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void producesOutputOnlyAsRequested() {
+        String json = "[" + (JSON + ",").repeat(5000) + JSON + "]";
+        ChunkPublisher input = new ChunkPublisher(json.getBytes(UTF_8), 1024);
+        RecordingSubscriber output = new RecordingSubscriber();
+
+        printer.prettyPrint(input).subscribe(output);
+
+        assertEquals(0, input.requested);
+
+        output.subscription.request(1);
+
+        assertEquals(1, output.buffers.size());
+        assertTrue(input.requested < 10);
+        assertFalse(output.completed);
+
+        output.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(output.completed);
+        assertEquals(input.chunks.size(), input.requested - 1);
+        assertEquals(reference(json), output.text());
+    }
+
+    @Test
+    void failsOnTooDeepJson() {
+        printer = new JsonPrettyPrinter(2, 3);
+        ChunkPublisher input = new ChunkPublisher("[[[[1]]]]".getBytes(UTF_8), 1);
+        RecordingSubscriber output = new RecordingSubscriber();
+
+        printer.prettyPrint(input).subscribe(output);
+        output.subscription.request(1);
+
+        assertInstanceOf(IllegalArgumentException.class, output.error);
+        assertTrue(input.cancelled);
+    }
+
+    @Test
+    void cancelsInput() {
+        String json = "[" + (JSON + ",").repeat(5000) + JSON + "]";
+        ChunkPublisher input = new ChunkPublisher(json.getBytes(UTF_8), 1024);
+        RecordingSubscriber output = new RecordingSubscriber();
+
+        printer.prettyPrint(input).subscribe(output);
+        output.subscription.request(1);
+        output.subscription.cancel();
+
+        assertTrue(input.cancelled);
+        assertFalse(output.completed);
+
+        StringWriter writer = new StringWriter();
+        printer.prettyPrint(JSON, writer);
+        assertEquals(reference(JSON), writer.toString());
+    }
+
+    @Test
+    void forwardsInputError() {
+        IllegalStateException error = new IllegalStateException("failed");
+        RecordingSubscriber output = new RecordingSubscriber();
+
+        printer.prettyPrint(subscriber -> {
+            subscriber.onSubscribe(new ChunkPublisher(new byte[0], 1).subscription(subscriber));
+            subscriber.onError(error);
+        }).subscribe(output);
+        output.subscription.request(1);
+
+        assertEquals(error, output.error);
+    }
+
+    @Test
+    void nonPositiveRequest() {
+        RecordingSubscriber output = new RecordingSubscriber();
+
+        printer.prettyPrint(new ChunkPublisher(JSON.getBytes(UTF_8), 1)).subscribe(output);
+        output.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, output.error);
+    }
+
+    @Test
+    void singleSubscriber() {
+        Flow.Publisher<ByteBuffer> publisher = printer.prettyPrint(new ChunkPublisher(JSON.getBytes(UTF_8), 1));
+        RecordingSubscriber first = new RecordingSubscriber();
+        RecordingSubscriber second = new RecordingSubscriber();
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertInstanceOf(IllegalStateException.class, second.error);
+    }
+
+    @Test
+    void printsAsynchronouslyPublishedChunks() throws Exception {
+        String json = "[" + (JSON + ",").repeat(1000) + JSON + "]";
+        byte[] bytes = json.getBytes(UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompletableFuture<Void> completion;
+
+        try (SubmissionPublisher<ByteBuffer> input = new SubmissionPublisher<>()) {
+            completion = subscribe(printer.prettyPrint(input), output);
+            for (int i = 0; i < bytes.length; i += 100) {
+                input.submit(ByteBuffer.wrap(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 100))));
+            }
+        }
+
+        completion.get(10, TimeUnit.SECONDS);
+        assertEquals(reference(json), output.toString(UTF_8));
+    }
+
+    private CompletableFuture<Void> subscribe(Flow.Publisher<ByteBuffer> publisher, ByteArrayOutputStream output) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completion.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completion.complete(null);
+            }
+        });
+        return completion;
+    }
+
+    private String reference(String json) {
+        StringWriter writer = new StringWriter();
+        new JsonPrettyPrinter().prettyPrint(json, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Publishes the chunks of a byte array synchronously, as they are requested.
+     */
+    private static final class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+
+        private final List<byte[]> chunks = new ArrayList<>();
+        private int requested;
+        private boolean cancelled;
+
+        private ChunkPublisher(byte[] bytes, int chunkSize) {
+            for (int i = 0; i < bytes.length; i += chunkSize) {
+                chunks.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkSize)));
+            }
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(subscription(subscriber));
+        }
+
+        private Flow.Subscription subscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            return new Flow.Subscription() {
+                private int next;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && !cancelled; i++) {
+                        requested++;
+                        if (next < chunks.size()) {
+                            subscriber.onNext(ByteBuffer.wrap(chunks.get(next++)));
+                        } else {
+                            subscriber.onComplete();
+                            return;
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            };
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer buffer) {
+            buffers.add(buffer);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private String text() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            for (ByteBuffer buffer : buffers) {
+                output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            return output.toString(UTF_8);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package nemethi.jsonprettyprinter;
+
+import java.util.Random;
+
+/**
+ * Generates random, valid JSON documents of a given shape together with their expected pretty-printed form.
+ * The expected form is rendered independently of {@link JsonPrettyPrinter}, so it can be used as a reference.
+ * Line breaks in the expected form are {@code \n}.
+ */
+class RandomJsonGenerator {
+
+    enum Shape {
+        FLAT,
+        DEEP,
+        ESCAPES,
+        UNICODE,
+        HUGE_STRINGS,
+        MIXED
+    }
+
+    static final class Document {
+        final String json;
+        final String expected;
+
+        private Document(String json, String expected) {
+            this.json = json;
+            this.expected = expected;
+        }
+    }
+
+    private static final String WHITESPACE = " \t\r\n";
+    private static final String PLAIN_CHARACTERS = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789 {}[]:,";
+    private static final String[] ESCAPE_SEQUENCES = {"\\\"", "\\\\", "\\/", "\\b", "\\f", "\\n", "\\r", "\\t", "\\u0022", "\\u005C", "\\u00e9", "\\uD83D\\uDE00"};
+    private static final String[] LITERALS = {"true", "false", "null"};
+    private static final String[] NUMBERS = {"0", "-0", "1.5e-3", "2E+10", "-3.25E-2", "123456789012345678901234567890", "0.000001", "1.0E2"};
+
+    private final Random random;
+    private final Shape shape;
+    private final String indentation;
+    private final StringBuilder json = new StringBuilder();
+    private final StringBuilder expected = new StringBuilder();
+    private int targetDepth;
+
+    RandomJsonGenerator(long seed, Shape shape, int indentAmount) {
+        this.random = new Random(seed);
+        this.shape = shape;
+        this.indentation = " ".repeat(indentAmount);
+    }
+
+    Document next() {
+        json.setLength(0);
+        expected.setLength(0);
+        targetDepth = targetDepth();
+        whitespace();
+        if (random.nextBoolean()) {
+            array(0);
+        } else {
+            object(0);
+        }
+        whitespace();
+        return new Document(json.toString(), expected.toString());
+    }
+
+    private int targetDepth() {
+        switch (shape) {
+            case FLAT:
+                return 1;
+            case DEEP:
+                return 50 + random.nextInt(250);
+            default:
+                return 1 + random.nextInt(6);
+        }
+    }
+
+    private void value(int depth) {
+        if (depth < targetDepth && (shape == Shape.DEEP || random.nextInt(3) == 0)) {
+            if (random.nextBoolean()) {
+                array(depth);
+            } else {
+                object(depth);
+            }
+            return;
+        }
+        String scalar;
+        switch (random.nextInt(4)) {
+            case 0:
+                scalar = LITERALS[random.nextInt(LITERALS.length)];
+                break;
+            case 1:
+                scalar = number();
+                break;
+            default:
+                scalar = string();
+        }
+        json.append(scalar);
+        expected.append(scalar);
+    }
+
+    private void array(int depth) {
+        json.append('[');
+        expected.append('[');
+        int size = size(depth);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+                expected.append(',');
+            }
+            whitespace();
+            newLine(depth + 1);
+            value(depth + 1);
+            whitespace();
+        }
+        if (size > 0) {
+            newLine(depth);
+        } else {
+            whitespace();
+        }
+        json.append(']');
+        expected.append(']');
+    }
+
+    private void object(int depth) {
+        json.append('{');
+        expected.append('{');
+        int size = size(depth);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+                expected.append(',');
+            }
+            whitespace();
+            newLine(depth + 1);
+            String key = string();
+            json.append(key);
+            whitespace();
+            json.append(':');
+            whitespace();
+            expected.append(key).append(": ");
+            value(depth + 1);
+            whitespace();
+        }
+        if (size > 0) {
+            newLine(depth);
+        } else {
+            whitespace();
+        }
+        json.append('}');
+        expected.append('}');
+    }
+
+    private int size(int depth) {
+        switch (shape) {
+            case FLAT:
+                return random.nextInt(50);
+            case DEEP:
+                return depth < targetDepth ? 1 : random.nextInt(3);
+            case HUGE_STRINGS:
+                return random.nextInt(4);
+            default:
+                return random.nextInt(7);
+        }
+    }
+
+    private void newLine(int depth) {
+        expected.append('\n').append(indentation.repeat(depth));
+    }
+
+    private void whitespace() {
+        int count = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+        for (int i = 0; i < count; i++) {
+            json.append(WHITESPACE.charAt(random.nextInt(WHITESPACE.length())));
+        }
+    }
+
+    private String number() {
+        if (random.nextBoolean()) {
+            return NUMBERS[random.nextInt(NUMBERS.length)];
+        }
+        return Long.toString(random.nextLong());
+    }
+
+    private String string() {
+        int length = shape == Shape.HUGE_STRINGS ? 10_000 + random.nextInt(100_000) : random.nextInt(20);
+        StringBuilder string = new StringBuilder(length + 2).append('"');
+        for (int i = 0; i < length; i++) {
+            appendCharacter(string);
+        }
+        return string.append('"').toString();
+    }
+
+    private void appendCharacter(StringBuilder string) {
+        int choice = random.nextInt(10);
+        if (shape == Shape.ESCAPES && choice < 5 || shape == Shape.MIXED && choice == 0) {
+            string.append(ESCAPE_SEQUENCES[random.nextInt(ESCAPE_SEQUENCES.length)]);
+        } else if (shape == Shape.UNICODE && choice < 5 || (shape == Shape.MIXED || shape == Shape.HUGE_STRINGS) && choice == 1) {
+            appendUnicodeCharacter(string);
+        } else {
+            string.append(PLAIN_CHARACTERS.charAt(random.nextInt(PLAIN_CHARACTERS.length())));
+        }
+    }
+
+    private void appendUnicodeCharacter(StringBuilder string) {
+        if (random.nextBoolean()) {
+            string.appendCodePoint(0x10000 + random.nextInt(0x10FFFF - 0x10000));
+        } else {
+            char c;
+            do {
+                c = (char) (0x80 + random.nextInt(0xFFFF - 0x80));
+            } while (Character.isSurrogate(c));
+            string.append(c);
+        }
+    }
+}
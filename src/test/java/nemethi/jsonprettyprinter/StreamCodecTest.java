@@ -0,0 +1,30 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamCodecTest {
+
+    @Test
+    void nullName() {
+        assertThrows(NullPointerException.class,
+                () -> StreamCodec.forName(null),
+                "name cannot be null");
+    }
+
+    @Test
+    void findsStandardCodecsIgnoringCase() {
+        assertEquals(StandardStreamCodec.GZIP, StreamCodec.forName("gzip"));
+        assertEquals(StandardStreamCodec.DEFLATE, StreamCodec.forName("Deflate"));
+        assertEquals(StandardStreamCodec.IDENTITY, StreamCodec.forName("IDENTITY"));
+    }
+
+    @Test
+    void unknownCodec() {
+        assertThrows(IllegalArgumentException.class,
+                () -> StreamCodec.forName("zstd"),
+                "unknown codec: zstd");
+    }
+}
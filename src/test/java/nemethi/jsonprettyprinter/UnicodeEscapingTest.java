@@ -0,0 +1,99 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UnicodeEscapingTest {
+
+    private final StringBuilder scratch = new StringBuilder();
+
+    @Test
+    void noneReturnsSameString() {
+        String string = "\"\\u00e9\u00e9\"";
+        assertSame(string, UnicodeEscaping.NONE.apply(string, scratch));
+    }
+
+    @Nested
+    class Unescape {
+
+        @Test
+        void stringWithoutBackslashIsNotCopied() {
+            String string = "\"plain \u00e9\"";
+            assertSame(string, apply(string));
+        }
+
+        @Test
+        void stringWithoutUnescapableSequenceIsNotCopied() {
+            String string = "\"a\\nb\\\"c\\u0022\"";
+            assertSame(string, apply(string));
+        }
+
+        @Test
+        void decodesEscapeSequences() {
+            assertEquals("\"caf\u00e9 \u00e9A\"", apply("\"caf\\u00e9 \\u00E9\\u0041\""));
+        }
+
+        @Test
+        void decodesSurrogatePairs() {
+            assertEquals("\"x\uD83D\uDE00y\"", apply("\"x\\ud83d\\ude00y\""));
+        }
+
+        @Test
+        void keepsLoneSurrogates() {
+            assertEquals("\"\\ud83d\u00e9\\ude00\"", apply("\"\\ud83d\\u00e9\\ude00\""));
+        }
+
+        @Test
+        void keepsCharactersWhichMustBeEscaped() {
+            String string = "\"\\u0022\\u005c\\u001f\\u0000\"";
+            assertSame(string, apply(string));
+        }
+
+        @Test
+        void doesNotDecodeEscapedBackslash() {
+            assertEquals("\"\\\\u0041\u00e9\"", apply("\"\\\\u0041\\u00e9\""));
+        }
+
+        @Test
+        void keepsInvalidEscapeSequences() {
+            assertEquals("\"\\u00g1\\u00\u00e9\"", apply("\"\\u00g1\\u00\\u00e9\""));
+        }
+
+        private String apply(String string) {
+            return UnicodeEscaping.UNESCAPE.apply(string, scratch);
+        }
+    }
+
+    @Nested
+    class Escape {
+
+        @Test
+        void asciiStringIsNotCopied() {
+            String string = "\"plain \\u00e9\"";
+            assertSame(string, apply(string));
+        }
+
+        @Test
+        void escapesNonAsciiCharacters() {
+            assertEquals("\"caf\\u00e9 \\u20ac\u007f\"", apply("\"caf\u00e9 \u20ac\u007f\""));
+        }
+
+        @Test
+        void escapesSurrogatePairs() {
+            assertEquals("\"x\\ud83d\\ude00y\"", apply("\"x\uD83D\uDE00y\""));
+        }
+
+        @Test
+        void reusesScratchBuffer() {
+            assertEquals("\"\\u00e9\"", apply("\"\u00e9\""));
+            assertEquals("\"a\\u00fc\"", apply("\"a\u00fc\""));
+        }
+
+        private String apply(String string) {
+            return UnicodeEscaping.ESCAPE.apply(string, scratch);
+        }
+    }
+}
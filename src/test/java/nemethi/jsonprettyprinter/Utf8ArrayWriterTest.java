@@ -0,0 +1,41 @@
+package nemethi.jsonprettyprinter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Utf8ArrayWriterTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "ascii", "árvíztűrő", "€￿", "😀", "\uD83D", "\uDE00", "a\uD83Db", "\uDE00\uD83D"})
+    void encodesLikeString(String string) throws IOException {
+        byte[] expected = string.getBytes(UTF_8);
+        Utf8ArrayWriter counter = new Utf8ArrayWriter();
+        counter.write(string);
+        counter.close();
+
+        byte[] array = new byte[(int) counter.byteCount()];
+        Utf8ArrayWriter writer = new Utf8ArrayWriter(array);
+        writer.write(string);
+        writer.close();
+
+        assertEquals(string.length(), counter.charCount());
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    void encodesSurrogatePairsSplitAcrossWrites() throws IOException {
+        Utf8ArrayWriter counter = new Utf8ArrayWriter();
+        counter.write("a\uD83D".toCharArray());
+        counter.write('\uDE00');
+
+        assertEquals(3, counter.charCount());
+        assertEquals(5, counter.byteCount());
+    }
+}